@@ -0,0 +1,102 @@
+package ARP;
+
+import org.pcap4j.util.MacAddress;
+import ports.IfBindingManager;
+import util.LongObjectMap;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * (outIf, next hop) -> prebuilt 14-byte Ethernet header for forwarded IPv4, so the
+ * fast path only copies bytes. Entries exist only while the neighbour is REACHABLE:
+ * any ArpCache transition for the IP, or a rebind of the interface, drops them.
+ * Each adjacency points at its neighbour entry so a hit can set the entry's hit bit.
+ * Listeners run after adjacencies were dropped, so holders of copies can let them go.
+ */
+public class AdjacencyTable implements ArpCache.Listener, IfBindingManager.BindingListener {
+
+    public static final int HEADER_LEN = 14;
+
+    public static final class Adjacency {
+        public final String outIf;
+        public final int nextHop;
+        public final byte[] header;
+        private final ArpCache.ArpEntry neighbour;
+
+        Adjacency(String outIf, int nextHop, MacAddress src, MacAddress dst, ArpCache.ArpEntry neighbour) {
+            this.outIf = outIf;
+            this.nextHop = nextHop;
+            this.neighbour = neighbour;
+            this.header = new byte[HEADER_LEN];
+            System.arraycopy(dst.getAddress(), 0, header, 0, 6);
+            System.arraycopy(src.getAddress(), 0, header, 6, 6);
+            header[12] = 0x08;
+            header[13] = 0x00;
+        }
+
+        /** Records that forwarding used this neighbour, for the ARP refresh. */
+        public void touch() {
+            if (neighbour != null) neighbour.markUsed();
+        }
+    }
+
+    private final ArpCache cache;
+    private final ConcurrentHashMap<String, LongObjectMap<Adjacency>> byIf = new ConcurrentHashMap<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    /** Register with the ArpCache and the IfBindingManager so transitions and rebinds drop entries. */
+    public AdjacencyTable(ArpCache cache) {
+        this.cache = Objects.requireNonNull(cache);
+    }
+
+    public Adjacency get(String outIf, int nextHop) {
+        LongObjectMap<Adjacency> m = byIf.get(outIf);
+        return m == null ? null : m.get(nextHop);
+    }
+
+    /**
+     * Caches the rewrite for a freshly resolved neighbour. Re-checks the ArpCache after
+     * publishing so a transition racing with the install cannot leave a stale header.
+     */
+    public Adjacency install(String outIf, int nextHop, MacAddress src, MacAddress dst) {
+        ArpCache.ArpEntry neighbour = cache.lookup(outIf, nextHop);
+        Adjacency adj = new Adjacency(outIf, nextHop, src, dst, neighbour);
+        LongObjectMap<Adjacency> m = byIf.computeIfAbsent(outIf, k -> new LongObjectMap<>());
+        m.put(nextHop, adj);
+
+        ArpCache.ArpEntry e = cache.lookup(outIf, nextHop);
+        boolean stillValid = e != null && e == neighbour && e.state == ArpCache.State.REACHABLE
+                && e.macLong() == ArpCache.toLong(dst);
+        if (!stillValid && m.remove(nextHop, adj)) fireDropped();
+        return adj;
+    }
+
+    public void addListener(Runnable l) { listeners.add(l); }
+
+    public int size() {
+        int n = 0;
+        for (var m : byIf.values()) n += m.size();
+        return n;
+    }
+
+    @Override
+    public void onEntryChange(ArpCache.ArpEntry e) {
+        String ifName = e.ifName();
+        LongObjectMap<Adjacency> m = ifName == null ? null : byIf.get(ifName);
+        if (m != null && m.remove(e.ip()) != null) fireDropped();
+    }
+
+    @Override
+    public void onBindingChange(String ifName, boolean bound) {
+        if (byIf.remove(ifName) != null) fireDropped();
+    }
+
+    private void fireDropped() {
+        for (Runnable l : listeners) {
+            try { l.run(); } catch (Throwable ignored) {}
+        }
+    }
+}
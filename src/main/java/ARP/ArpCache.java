@@ -1,97 +1,347 @@
 package ARP;
 
+import network.IfIndex;
 import network.IpAddres;
 import org.pcap4j.util.MacAddress;
+import util.LongObjectMap;
+import util.TimingWheel;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Per-interface neighbour table keyed by (ifIndex, IPv4) packed into one long, in a
+ * primitive open-addressing map with lock-free reads. An entry is a handful of
+ * primitives (MAC as a long), so the same address on two segments no longer collides
+ * and a neighbour costs a few dozen bytes.
+ *
+ * <p>Aging runs on a {@link TimingWheel}: each REACHABLE or STALE entry is itself an
+ * armed wheel task and is only looked at when it fires. Refreshing an entry just moves
+ * updatedMillis; the pending timeout notices and re-arms for the remaining time, so
+ * the hot path never cancels or reschedules.
+ *
+ * <p>The forwarding path sets a hit bit on the neighbours it uses. Shortly before a
+ * REACHABLE entry would go STALE, a used one gets a unicast refresh probe through the
+ * {@link Prober}, so a busy next hop is renewed without ever leaving REACHABLE.
+ *
+ * <p>A failed resolution leaves a FAILED entry that holds the target down for an
+ * exponentially growing time (hold-down-min doubling per consecutive failure up to
+ * hold-down-max). While held down, {@link #heldDown} answers without a new ARP cycle;
+ * a FAILED entry quiet for another hold-down-max is forgotten with its backoff.
+ */
 public class ArpCache {
 
     public enum State { INCOMPLETE, REACHABLE, STALE, FAILED }
 
-    public static final class ArpEntry {
-        public final IpAddres ip;
-        public volatile MacAddress mac;
+    public static final class ArpEntry extends TimingWheel.Task {
+        private final ArpCache cache;
+        private final int ifIndex;
+        private final int ip;
+        private volatile long mac = NO_MAC;
         public volatile State state;
         public volatile long updatedMillis;
+        private volatile long holdUntilMillis;
+        private volatile boolean hit;
+        private volatile boolean probed;   // refresh probe sent in this REACHABLE period
+        private int failures;    // guarded by this
+        private boolean armed;   // guarded by this
 
-        ArpEntry(IpAddres ip, State st) {
-            this.ip = ip; this.state = st;
+        ArpEntry(ArpCache cache, int ifIndex, int ip, State st) {
+            this.cache = cache;
+            this.ifIndex = ifIndex;
+            this.ip = ip;
+            this.state = st;
             this.updatedMillis = System.currentTimeMillis();
         }
+
+        public int ifIndex() { return ifIndex; }
+        public String ifName() { return IfIndex.name(ifIndex); }
+        public int ip() { return ip; }
+        public IpAddres ipAddres() { return IpAddres.fromInt(ip); }
+        public boolean hasMac() { return mac != NO_MAC; }
+        public long macLong() { return mac; }
+        /** Builds a MacAddress; off the fast path only. */
+        public MacAddress mac() { return mac == NO_MAC ? null : toMac(mac); }
+
+        /** Marks the entry as used by forwarding; a plain read keeps the hot path off the store. */
+        public void markUsed() { if (!hit) hit = true; }
+
+        /** A refresh probe is out and its reply has not come back yet. */
+        public boolean refreshPending() { return probed && state == State.REACHABLE; }
+
+        /** Consecutive failed resolutions since the last reply. */
+        public int failures() { return failures; }
+        public long holdUntilMillis() { return holdUntilMillis; }
+
         public long ageSeconds() { return (System.currentTimeMillis() - updatedMillis) / 1000; }
+
+        @Override
+        protected void expired() { cache.expire(this); }
     }
 
     public static final class ArpRow {
-        public final String ip, mac, state;
+        public final String ifName, ip, mac, state;
         public final long ageSec;
         public ArpRow(ArpEntry e) {
-            this.ip = e.ip.getIp();
-            this.mac = e.mac == null ? "" : e.mac.toString();
+            this.ifName = e.ifName();
+            this.ip = e.ipAddres().getIp();
+            this.mac = e.hasMac() ? e.mac().toString() : "";
             this.state = e.state.name();
             this.ageSec = e.ageSeconds();
         }
     }
 
-    private final ConcurrentHashMap<IpAddres, ArpEntry> table = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor(r -> {
-        Thread t = new Thread(r, "arp-aging"); t.setDaemon(true); return t;
-    });
+    /** Fired after an entry changes state or MAC, or is removed. */
+    public interface Listener {
+        void onEntryChange(ArpEntry e);
+    }
+
+    /** Sends the unicast refresh probe for a used neighbour; called on the wheel thread. */
+    public interface Prober {
+        void probe(ArpEntry e);
+    }
+
+    /** Stored when no MAC is known; 48-bit MACs never reach it. */
+    private static final long NO_MAC = -1L;
+
+    private final LongObjectMap<ArpEntry> table = new LongObjectMap<>(256);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final TimingWheel wheel;
+    private final boolean ownsWheel;
 
     private final int REACHABLE_TO_STALE_SEC = 60;
     private final int STALE_EVICT_SEC = 120;
 
+    private final long holdDownMinMs;
+    private final long holdDownMaxMs;
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder refreshProbes = new LongAdder();
+    private volatile long refreshLeadMs = 3000;
+    private volatile Prober prober;
+
     public ArpCache() {
-        ses.scheduleAtFixedRate(this::ageSweep, 1, 1, TimeUnit.SECONDS);
+        this(new TimingWheel("arp-aging", 100, TimeUnit.MILLISECONDS, 512), true, 1000, 60_000);
     }
 
-    private void ageSweep() {
-        long now = System.currentTimeMillis();
-        for (ArpEntry e : table.values()) {
+    public ArpCache(TimingWheel wheel) {
+        this(wheel, false, 1000, 60_000);
+    }
+
+    public ArpCache(TimingWheel wheel, long holdDownMinMs, long holdDownMaxMs) {
+        this(wheel, false, holdDownMinMs, holdDownMaxMs);
+    }
+
+    private ArpCache(TimingWheel wheel, boolean ownsWheel, long holdDownMinMs, long holdDownMaxMs) {
+        if (holdDownMinMs < 0 || holdDownMaxMs < holdDownMinMs)
+            throw new IllegalArgumentException("ARP hold-down needs 0 <= min <= max");
+        this.wheel = Objects.requireNonNull(wheel);
+        this.ownsWheel = ownsWheel;
+        this.holdDownMinMs = holdDownMinMs;
+        this.holdDownMaxMs = holdDownMaxMs;
+    }
+
+    /** How long before the REACHABLE deadline a used neighbour is probed; 0 turns it off. */
+    public void setRefreshLead(long ms) {
+        if (ms < 0 || ms >= REACHABLE_TO_STALE_SEC * 1000L)
+            throw new IllegalArgumentException("refresh lead must be in [0, " + REACHABLE_TO_STALE_SEC + "s)");
+        this.refreshLeadMs = ms;
+    }
+
+    public void setProber(Prober prober) { this.prober = prober; }
+
+    public static long toLong(MacAddress mac) {
+        byte[] b = mac.getAddress();
+        long v = 0;
+        for (int i = 0; i < 6; i++) v = (v << 8) | (b[i] & 0xFF);
+        return v;
+    }
+
+    public static MacAddress toMac(long v) {
+        byte[] b = new byte[6];
+        for (int i = 5; i >= 0; i--) { b[i] = (byte) v; v >>>= 8; }
+        return MacAddress.getByAddress(b);
+    }
+
+    /** Arms the aging timeout of e unless one is already pending. */
+    private void arm(ArpEntry e) {
+        long delayMs;
+        synchronized (e) {
+            if (e.armed) return;
+            long deadline = switch (e.state) {
+                case REACHABLE -> {
+                    long staleAt = e.updatedMillis + REACHABLE_TO_STALE_SEC * 1000L;
+                    yield e.probed || refreshLeadMs == 0 ? staleAt : staleAt - refreshLeadMs;
+                }
+                case STALE -> e.updatedMillis + STALE_EVICT_SEC * 1000L;
+                case FAILED -> e.holdUntilMillis + holdDownMaxMs;
+                default -> -1;
+            };
+            if (deadline < 0) return;
+            e.armed = true;
+            delayMs = deadline - System.currentTimeMillis();
+        }
+        wheel.schedule(e, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Deadline of e reached: age it one step, or re-arm if it was refreshed meanwhile. */
+    private void expire(ArpEntry e) {
+        boolean changed = false, evict = false, probe = false;
+        long k = IfIndex.key(e.ifIndex, e.ip);
+        synchronized (e) {
+            e.armed = false;
+            if (table.get(k) != e) return;   // removed or replaced meanwhile
+            long now = System.currentTimeMillis();
             long sec = (now - e.updatedMillis) / 1000;
-            if (e.state == State.REACHABLE && sec > REACHABLE_TO_STALE_SEC) {
+            if (e.state == State.REACHABLE && sec >= REACHABLE_TO_STALE_SEC) {
                 e.state = State.STALE;
-            } else if (e.state == State.STALE && sec > STALE_EVICT_SEC) {
-                table.remove(e.ip);
+                changed = true;
+            } else if (e.state == State.REACHABLE && !e.probed && refreshLeadMs > 0
+                    && now >= e.updatedMillis + REACHABLE_TO_STALE_SEC * 1000L - refreshLeadMs) {
+                e.probed = true;
+                probe = e.hit;
+                e.hit = false;
+            } else if (e.state == State.STALE && sec >= STALE_EVICT_SEC) {
+                evict = true;
+            } else if (e.state == State.FAILED && now >= e.holdUntilMillis + holdDownMaxMs) {
+                evict = true;
             }
         }
+        if (evict) {
+            if (table.remove(k, e)) fire(e);
+            return;
+        }
+        if (changed) fire(e);
+        Prober p = prober;
+        if (probe && p != null) {
+            refreshProbes.increment();
+            try { p.probe(e); } catch (Throwable ignored) {}
+        }
+        arm(e);
+    }
+
+    public void learned(String ifName, IpAddres ip, MacAddress mac) {
+        int idx = IfIndex.of(ifName);
+        int addr = ip.toInt();
+        ArpEntry e = table.computeIfAbsent(IfIndex.key(idx, addr), k -> new ArpEntry(this, idx, addr, State.INCOMPLETE));
+        long m = toLong(mac);
+        boolean changed;
+        synchronized (e) {
+            changed = e.state != State.REACHABLE || e.mac != m;
+            e.mac = m;
+            e.state = State.REACHABLE;
+            e.updatedMillis = System.currentTimeMillis();
+            e.failures = 0;
+            e.holdUntilMillis = 0;
+            e.probed = false;
+            e.hit = false;
+        }
+        arm(e);
+        if (changed) fire(e);
+    }
+
+    public ArpEntry beginResolve(String ifName, IpAddres ip) {
+        int idx = IfIndex.of(ifName);
+        int addr = ip.toInt();
+        ArpEntry e = table.computeIfAbsent(IfIndex.key(idx, addr), k -> new ArpEntry(this, idx, addr, State.INCOMPLETE));
+        synchronized (e) {
+            long now = System.currentTimeMillis();
+            if (e.state == State.FAILED && now < e.holdUntilMillis) return e;
+            if (e.state == State.FAILED) e.state = State.INCOMPLETE;
+            e.updatedMillis = now;
+        }
+        return e;
     }
 
-    public void learned(IpAddres ip, MacAddress mac) {
-        ArpEntry e = table.computeIfAbsent(ip, k -> new ArpEntry(k, State.INCOMPLETE));
-        e.mac = mac;
-        e.state = State.REACHABLE;
-        e.updatedMillis = System.currentTimeMillis();
+    /**
+     * True while a failed resolution of ip on ifName is still held down; such a lookup
+     * is counted as blocked. Lock-free and allocation-free.
+     */
+    public boolean heldDown(String ifName, int ip) {
+        ArpEntry e = lookup(ifName, ip);
+        if (e == null || e.state != State.FAILED || System.currentTimeMillis() >= e.holdUntilMillis) return false;
+        blocked.increment();
+        return true;
     }
 
-    public ArpEntry beginResolve(IpAddres ip) {
-        return table.compute(ip, (k, v) -> {
-            if (v == null) return new ArpEntry(k, State.INCOMPLETE);
-            if (v.state == State.FAILED) v.state = State.INCOMPLETE;
-            v.updatedMillis = System.currentTimeMillis();
-            return v;
-        });
+    /** Lock-free and allocation-free; null when unknown. */
+    public ArpEntry lookup(String ifName, int ip) {
+        int idx = IfIndex.find(ifName);
+        return idx == 0 ? null : table.get(IfIndex.key(idx, ip));
     }
 
-    public Optional<ArpEntry> get(IpAddres ip) {
-        ArpEntry e = table.get(ip);
-        return Optional.ofNullable(e);
+    public Optional<ArpEntry> get(String ifName, IpAddres ip) {
+        return Optional.ofNullable(lookup(ifName, ip.toInt()));
+    }
+
+    public void markFailed(String ifName, IpAddres ip) {
+        ArpEntry e = lookup(ifName, ip.toInt());
+        if (e == null) return;
+        synchronized (e) {
+            long now = System.currentTimeMillis();
+            int shift = Math.min(e.failures, 20);
+            e.failures++;
+            e.state = State.FAILED;
+            e.updatedMillis = now;
+            e.holdUntilMillis = now + Math.min(holdDownMaxMs, holdDownMinMs << shift);
+        }
+        arm(e);
+        fire(e);
     }
 
-    public void markFailed(IpAddres ip) {
-        ArpEntry e = table.get(ip);
-        if (e != null) { e.state = State.FAILED; e.updatedMillis = System.currentTimeMillis(); }
+    public void remove(String ifName, IpAddres ip) {
+        int idx = IfIndex.find(ifName);
+        if (idx == 0) return;
+        ArpEntry e = table.remove(IfIndex.key(idx, ip.toInt()));
+        if (e != null) fire(e);
     }
 
-    public void remove(IpAddres ip) { table.remove(ip); }
+    /** Drops ip on every interface; returns whether any entry existed. */
+    public boolean removeEverywhere(IpAddres ip) {
+        int addr = ip.toInt();
+        List<ArpEntry> hits = new ArrayList<>();
+        table.forEach((k, e) -> { if (e.ip == addr) hits.add(e); });
+        boolean any = false;
+        for (ArpEntry e : hits) {
+            if (table.remove(IfIndex.key(e.ifIndex, e.ip), e)) {
+                any = true;
+                fire(e);
+            }
+        }
+        return any;
+    }
+
+    public int size() { return table.size(); }
+
+    public Map<String, Long> stats() {
+        long now = System.currentTimeMillis();
+        long held = 0;
+        for (ArpEntry e : table.values()) {
+            if (e.state == State.FAILED && now < e.holdUntilMillis) held++;
+        }
+        Map<String, Long> m = new LinkedHashMap<>();
+        m.put("entries", (long) table.size());
+        m.put("heldDown", held);
+        m.put("blockedLookups", blocked.sum());
+        m.put("refreshProbes", refreshProbes.sum());
+        return m;
+    }
+
+    public void addListener(Listener l) { listeners.add(l); }
+    public void removeListener(Listener l) { listeners.remove(l); }
+
+    private void fire(ArpEntry e) {
+        for (Listener l : listeners) {
+            try { l.onEntryChange(e); } catch (Throwable ignored) {}
+        }
+    }
 
     public List<ArpRow> snapshot() {
         List<ArpRow> out = new ArrayList<>();
         for (ArpEntry e : table.values()) out.add(new ArpRow(e));
-        out.sort(Comparator.comparing(r -> r.ip));
+        out.sort(Comparator.comparing((ArpRow r) -> r.ip).thenComparing(r -> String.valueOf(r.ifName)));
         return out;
     }
 
-    public void shutdown() { ses.shutdownNow(); }
+    public void shutdown() { if (ownsWheel) wheel.stop(); }
 }
@@ -7,34 +7,36 @@ import org.pcap4j.packet.namednumber.ArpOperation;
 import org.pcap4j.packet.namednumber.EtherType;
 import org.pcap4j.util.MacAddress;
 import ports.TxSender;
-import rib.Rib;
 
 import java.net.Inet4Address;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 
 public class ArpEngine {
 
+    /** Shared answer while a target is held down after failing to resolve. */
+    private static final CompletableFuture<MacAddress> HELD_DOWN =
+            CompletableFuture.failedFuture(new TimeoutException("ARP target held down after failed resolution"));
+
     private final IfAddressBook ifBook;
     private final ArpCache cache;
     private final ArpRequestScheduler scheduler;
     private final TxSender tx;
 
-    private final Rib rib;
-    private final ProxyArpConfig proxyCfg;
+    private final ProxyArpDecisions proxyDecisions;
 
     public ArpEngine(IfAddressBook ifBook,
                      ArpCache cache,
                      ArpRequestScheduler scheduler,
                      TxSender tx,
-                     Rib rib,
-                     ProxyArpConfig proxyCfg) {
+                     ProxyArpDecisions proxyDecisions) {
         this.ifBook = Objects.requireNonNull(ifBook);
         this.cache = Objects.requireNonNull(cache);
         this.scheduler = Objects.requireNonNull(scheduler);
         this.tx = Objects.requireNonNull(tx);
-        this.rib = Objects.requireNonNull(rib);
-        this.proxyCfg = Objects.requireNonNull(proxyCfg);
+        this.proxyDecisions = Objects.requireNonNull(proxyDecisions);
+        cache.setProber(this::sendRefresh);
     }
 
     public void onEthernetFrame(EthernetPacket eth, String ifName) {
@@ -61,13 +63,13 @@ public class ArpEngine {
         System.out.printf("[ARP] Got request for %s, my %s on %s%n", tpa, selfIp, ifName);
 
 
-        boolean weWaitForSpa = cache.get(spa)
-                .map(e -> e.state == ArpCache.State.INCOMPLETE)
-                .orElse(false);
+        ArpCache.ArpEntry known = cache.lookup(ifName, spa.toInt());
+        boolean weWaitForSpa = known != null
+                && (known.state == ArpCache.State.INCOMPLETE || known.refreshPending());
         boolean askedUs = isRequest && isLocalTarget(ifName, tpa);
 
         if (weWaitForSpa || askedUs) {
-            cache.learned(spa, sha);
+            cache.learned(ifName, spa, sha);
             scheduler.onLearned(ifName, spa, sha);
         }
 
@@ -81,87 +83,58 @@ public class ArpEngine {
             }
             return;
         }
-        System.out.println("isRequested:" + isRequest + "\nshouldProxyfor:" + shouldProxyFor(ifName,tpa));
         if (isRequest && shouldProxyFor(ifName, tpa)) {
             try {
-                System.out.println("Sending reply for proxy with:selfMac:" + selfMac + "tpa:" + tpa.getHostAddress() + " sha:" + sha+ " spa:" +spa );
                 EthernetPacket reply = ArpFrameBuilder.buildReply(selfMac,
                         new IpAddres(tpa.getHostAddress()), sha, spa);
                 tx.send(ifName, reply);
 
-                cache.learned(new IpAddres(tpa.getHostAddress()), selfMac);
+                cache.learned(ifName, new IpAddres(tpa.getHostAddress()), selfMac);
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }
     }
 
+    private void sendRefresh(ArpCache.ArpEntry e) {
+        String ifName = e.ifName();
+        MacAddress dst = e.mac();
+        MacAddress srcMac = ifBook.getMac(ifName);
+        IpAddres srcIp = ifBook.getIp(ifName);
+        if (dst == null || srcMac == null || srcIp == null) return;
+        try {
+            tx.send(ifName, ArpFrameBuilder.buildRequest(srcMac, srcIp, dst, e.ipAddres()));
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
     public CompletableFuture<MacAddress> resolve(String ifName, IpAddres target) {
-        return cache.get(target)
-                .filter(e -> e.state == ArpCache.State.REACHABLE && e.mac != null)
-                .map(e -> CompletableFuture.completedFuture(e.mac))
-                .orElseGet(() -> {
-                    cache.beginResolve(target);
-                    return scheduler.kick(ifName, target)
-                            .whenComplete((mac, err) -> {
-                                if (mac != null) cache.learned(target, mac);
-                                else cache.markFailed(target);
-                            });
+        ArpCache.ArpEntry e = cache.lookup(ifName, target.toInt());
+        if (e != null && e.state == ArpCache.State.REACHABLE && e.hasMac()) {
+            return CompletableFuture.completedFuture(e.mac());
+        }
+        if (cache.heldDown(ifName, target.toInt())) return HELD_DOWN;
+        cache.beginResolve(ifName, target);
+        return scheduler.kick(ifName, target)
+                .whenComplete((mac, err) -> {
+                    if (mac != null) cache.learned(ifName, target, mac);
+                    else cache.markFailed(ifName, target);
                 });
     }
 
+    /** Whether resolving target on ifName would fail at once; see {@link ArpCache#heldDown}. */
+    public boolean heldDown(String ifName, int target) {
+        return cache.heldDown(ifName, target);
+    }
+
     public boolean isLocalTarget(String ifName, Inet4Address ip) {
         IpAddres local = ifBook.getIp(ifName);
         return local != null && local.equalsInet4(ip);
     }
 
 
-    private boolean shouldProxyFor(String inIf, Inet4Address targetIpRaw){
-        final String t = targetIpRaw.getHostAddress();
-
-        boolean en = proxyCfg.isEnabledOn(inIf);
-        if (!en) {
-            System.out.printf("[PARP] inIf=%s target=%s -> NO (disabled on inIf)%n", inIf, t);
-            return false;
-        }
-
-        IpAddres target = new IpAddres(t);
-        if (!target.isUnicast()) {
-            System.out.printf("[PARP] inIf=%s target=%s -> NO (not unicast)%n", inIf, t);
-            return false;
-        }
-
-        IpAddres self = ifBook.getIp(inIf);
-        if (self != null && self.equals(target)) {
-            System.out.printf("[PARP] inIf=%s target=%s -> NO (target is self IP=%s)%n", inIf, t, self);
-            return false;
-        }
-
-        var bestOpt = rib.lookup(target);
-        if (bestOpt.isEmpty()) {
-            System.out.printf("[PARP] inIf=%s target=%s -> NO (RIB: no route)%n", inIf, t);
-            return false;
-        }
-
-        var best = bestOpt.get();
-        System.out.printf("[PARP] inIf=%s target=%s RIB -> %s/%d via %s outIf=%s ad=%s proto=%s metric=%d%n",
-                inIf, t,
-                best.network().getIp(), best.length(),
-                (best.nextHop()==null ? "-" : best.nextHop().getIp()),
-                best.outIf(),
-                best.ad(), best.proto(), best.metric());
-
-
-        if (best.outIf() != null && best.outIf().equals(inIf)) {
-            System.out.printf("[PARP] inIf=%s target=%s -> NO (best.outIf==inIf: %s)%n", inIf, t, inIf);
-            return false;
-        }
-
-
-        System.out.printf("[PARP] inIf=%s target=%s -> YES (route exits via %s)%n",
-                inIf, t, best.outIf());
-
-        return true;
+    private boolean shouldProxyFor(String inIf, Inet4Address target) {
+        return proxyDecisions.shouldProxyFor(inIf, IpAddres.fromInet4(target));
     }
-
 }
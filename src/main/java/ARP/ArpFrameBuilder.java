@@ -24,6 +24,12 @@ public class ArpFrameBuilder {
         }
     }
     public static EthernetPacket buildRequest(MacAddress srcMac, IpAddres srcIp, IpAddres targetIp) {
+        return buildRequest(srcMac, srcIp, MacAddress.ETHER_BROADCAST_ADDRESS, targetIp);
+    }
+
+    /** Request sent straight to a known neighbour, as used to refresh its entry. */
+    public static EthernetPacket buildRequest(MacAddress srcMac, IpAddres srcIp,
+                                              MacAddress dstMac, IpAddres targetIp) {
         ArpPacket.Builder arp = new ArpPacket.Builder()
                 .hardwareType(ArpHardwareType.ETHERNET)
                 .protocolType(EtherType.IPV4)
@@ -37,7 +43,7 @@ public class ArpFrameBuilder {
 
         EthernetPacket.Builder eth = new EthernetPacket.Builder()
                 .srcAddr(srcMac)
-                .dstAddr(MacAddress.ETHER_BROADCAST_ADDRESS)
+                .dstAddr(dstMac)
                 .type(EtherType.ARP)
                 .payloadBuilder(arp)
                 .paddingAtBuild(true);
@@ -1,91 +1,228 @@
 package ARP;
 
+import network.IfIndex;
 import network.IpAddres;
 import org.pcap4j.packet.EthernetPacket;
 import org.pcap4j.util.MacAddress;
 import ports.TxSender;
+import util.LongObjectMap;
+import util.TimingWheel;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.*;
-
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends ARP requests for pending resolutions and retries them. Jobs are keyed on
+ * (ifIndex, IPv4) as one long, so a kick or a learned reply costs no allocation and
+ * concurrent kicks for the same target share one job.
+ *
+ * <p>Retransmits are coalesced per wheel tick: every job due in the same tick sits in
+ * one batch that is a single wheel task. Each interface also has a token bucket; a
+ * request that finds it empty is not sent but still uses up its attempt, so a scan of
+ * a large prefix fails fast instead of queueing up behind the limit.
+ */
 public class ArpRequestScheduler {
 
     private static final class Job {
+        final long key;
+        final int ifIndex;
         final String ifName;
         final IpAddres target;
         final CompletableFuture<MacAddress> future = new CompletableFuture<>();
-        int attempt = 0;
-        ScheduledFuture<?> timer;
-        Job(String ifName, IpAddres target) { this.ifName = ifName; this.target = target; }
+        int attempt = 0;   // wheel thread after the first send
+
+        Job(long key, int ifIndex, String ifName, IpAddres target) {
+            this.key = key;
+            this.ifIndex = ifIndex;
+            this.ifName = ifName;
+            this.target = target;
+        }
+    }
+
+    /** Every retransmit due in one wheel tick. */
+    private final class Batch extends TimingWheel.Task {
+        final long tick;
+        final ArrayList<Job> jobs = new ArrayList<>(4);
+
+        Batch(long tick) { this.tick = tick; }
+
+        @Override
+        protected void expired() { fire(this); }
+    }
+
+    /** Token bucket of ARP requests per interface. */
+    private static final class Limiter {
+        private final double perNano;
+        private final double burst;
+        private double tokens;
+        private long last = System.nanoTime();
+
+        Limiter(int perSecond, int burst) {
+            this.perNano = perSecond / 1e9;
+            this.burst = burst;
+            this.tokens = burst;
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - last) * perNano);
+            last = now;
+            if (tokens < 1) return false;
+            tokens -= 1;
+            return true;
+        }
     }
 
     private final IfAddressBook ifBook;
     private final TxSender tx;
-    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor(r -> {
-        Thread t = new Thread(r, "arp-resolve"); t.setDaemon(true); return t;
-    });
+    private final LongObjectMap<Job> jobs = new LongObjectMap<>(256);
+    private final LongObjectMap<Batch> batches = new LongObjectMap<>(16);   // by due tick, guarded by itself
+    private final TimingWheel wheel;
+    private final boolean ownsWheel;
+    private final long tickMs;
+    private final long epoch = System.nanoTime();
+
+    private final int ratePerSec;
+    private final int burst;
+    private volatile Limiter[] limiters = new Limiter[16];   // by ifIndex
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder batchesFired = new LongAdder();
 
     private final int[] DELAYS_MS = {1000, 1000, 2000};
 
     public ArpRequestScheduler(IfAddressBook ifBook, TxSender tx) {
+        this(ifBook, tx, new TimingWheel("arp-resolve", 100, TimeUnit.MILLISECONDS, 512), true, 100, 20);
+    }
+
+    /** Retries share the given wheel (normally the ArpCache aging one). */
+    public ArpRequestScheduler(IfAddressBook ifBook, TxSender tx, TimingWheel wheel, int ratePerSec, int burst) {
+        this(ifBook, tx, wheel, false, ratePerSec, burst);
+    }
+
+    private ArpRequestScheduler(IfAddressBook ifBook, TxSender tx, TimingWheel wheel, boolean ownsWheel,
+                                int ratePerSec, int burst) {
+        if (ratePerSec <= 0 || burst <= 0) throw new IllegalArgumentException("ARP request rate and burst must be > 0");
         this.ifBook = Objects.requireNonNull(ifBook);
         this.tx = Objects.requireNonNull(tx);
+        this.wheel = Objects.requireNonNull(wheel);
+        this.ownsWheel = ownsWheel;
+        this.tickMs = Math.max(1, wheel.tickMillis());
+        this.ratePerSec = ratePerSec;
+        this.burst = burst;
     }
 
-    private static String key(String ifName, IpAddres ip) { return ifName + "|" + ip.getIp(); }
-
     public CompletableFuture<MacAddress> kick(String ifName, IpAddres target) {
-        String k = key(ifName, target);
+        int idx = IfIndex.of(ifName);
+        long k = IfIndex.key(idx, target.toInt());
         Job existing = jobs.get(k);
         if (existing != null) return existing.future;
 
-        Job job = new Job(ifName, target);
-        jobs.put(k, job);
-        sendOnce(job);
+        Job fresh = new Job(k, idx, ifName, target);
+        Job job = jobs.computeIfAbsent(k, x -> fresh);
+        if (job == fresh) transmit(job);
         return job.future;
     }
 
-    private void sendOnce(Job job) {
-        try {
-            MacAddress srcMac = ifBook.getMac(job.ifName);
-            IpAddres srcIp = ifBook.getIp(job.ifName);
-            EthernetPacket req = ArpFrameBuilder.buildRequest(srcMac, srcIp, job.target);
-            tx.send(job.ifName, req);
-        } catch (Exception e) {
-            completeExceptionally(job, e);
-            return;
+    /** Sends one request if the interface has budget, then books the next try or gives up. */
+    private void transmit(Job job) {
+        if (limiter(job.ifIndex).tryAcquire()) {
+            try {
+                MacAddress srcMac = ifBook.getMac(job.ifName);
+                IpAddres srcIp = ifBook.getIp(job.ifName);
+                EthernetPacket req = ArpFrameBuilder.buildRequest(srcMac, srcIp, job.target);
+                tx.send(job.ifName, req);
+                sent.increment();
+            } catch (Exception e) {
+                completeExceptionally(job, e);
+                return;
+            }
+        } else {
+            rateLimited.increment();
         }
 
         if (job.attempt >= DELAYS_MS.length) {
             completeExceptionally(job, new TimeoutException("ARP no reply after retries"));
             return;
         }
-        int delay = DELAYS_MS[job.attempt++];
-        job.timer = ses.schedule(() -> sendOnce(job), delay, TimeUnit.MILLISECONDS);
+        enqueue(job, DELAYS_MS[job.attempt++]);
+    }
+
+    private void enqueue(Job job, long delayMs) {
+        long nowMs = (System.nanoTime() - epoch) / 1_000_000;
+        long due = (nowMs + delayMs + tickMs - 1) / tickMs;
+        synchronized (batches) {
+            Batch b = batches.get(due);
+            if (b == null) {
+                b = new Batch(due);
+                batches.put(due, b);
+                wheel.schedule(b, due * tickMs - nowMs, TimeUnit.MILLISECONDS);
+            } else {
+                coalesced.increment();
+            }
+            b.jobs.add(job);
+        }
+    }
+
+    private void fire(Batch b) {
+        synchronized (batches) {
+            batches.remove(b.tick, b);
+        }
+        batchesFired.increment();
+        for (Job job : b.jobs) {
+            if (!job.future.isDone()) transmit(job);
+        }
+    }
+
+    private Limiter limiter(int ifIndex) {
+        Limiter[] ls = limiters;
+        Limiter l = ifIndex < ls.length ? ls[ifIndex] : null;
+        return l != null ? l : newLimiter(ifIndex);
+    }
+
+    private synchronized Limiter newLimiter(int ifIndex) {
+        Limiter[] ls = limiters;
+        if (ifIndex < ls.length && ls[ifIndex] != null) return ls[ifIndex];
+        ls = Arrays.copyOf(ls, Math.max(ls.length, Integer.highestOneBit(ifIndex) * 2));
+        Limiter l = new Limiter(ratePerSec, burst);
+        ls[ifIndex] = l;
+        limiters = ls;
+        return l;
     }
 
     private void complete(Job job, MacAddress mac) {
-        cancelTimer(job);
-        jobs.remove(key(job.ifName, job.target));
+        jobs.remove(job.key, job);
         job.future.complete(mac);
     }
 
     private void completeExceptionally(Job job, Throwable t) {
-        cancelTimer(job);
-        jobs.remove(key(job.ifName, job.target));
+        jobs.remove(job.key, job);
         job.future.completeExceptionally(t);
     }
 
-    private void cancelTimer(Job job) {
-        if (job.timer != null) { job.timer.cancel(true); job.timer = null; }
-    }
-
     public void onLearned(String ifName, IpAddres ip, MacAddress mac) {
-        Job j = jobs.get(key(ifName, ip));
+        int idx = IfIndex.find(ifName);
+        if (idx == 0) return;
+        Job j = jobs.get(IfIndex.key(idx, ip.toInt()));
         if (j != null) complete(j, mac);
     }
 
-    public void shutdown() { ses.shutdownNow(); }
+    public Map<String, Long> stats() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        m.put("pendingJobs", (long) jobs.size());
+        m.put("sent", sent.sum());
+        m.put("rateLimited", rateLimited.sum());
+        m.put("batchesFired", batchesFired.sum());
+        m.put("coalesced", coalesced.sum());
+        return m;
+    }
+
+    public void shutdown() { if (ownsWheel) wheel.stop(); }
 }
@@ -1,20 +1,32 @@
 package ARP;
 
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 public class ProxyArpConfig {
     private volatile boolean enabled = true;
     private final Set<String> disabledIfs = ConcurrentHashMap.newKeySet();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
 
     public boolean isEnabled() { return enabled; }
-    public void setEnabled(boolean en) { this.enabled = en; }
+    public void setEnabled(boolean en) { this.enabled = en; changed(); }
 
-    public void disableOn(String ifName){ disabledIfs.add(ifName); }
-    public void enableOn(String ifName){ disabledIfs.remove(ifName); }
+    public void disableOn(String ifName){ disabledIfs.add(ifName); changed(); }
+    public void enableOn(String ifName){ disabledIfs.remove(ifName); changed(); }
     public boolean isEnabledOn(String ifName)
     {
         return enabled && !disabledIfs.contains(ifName);
     }
+
+    /** Runs after every change of the global or per-interface switch. */
+    public void addListener(Runnable l) { listeners.add(l); }
+
+    private void changed() {
+        for (Runnable l : listeners) {
+            try { l.run(); } catch (Throwable ignored) {}
+        }
+    }
 }
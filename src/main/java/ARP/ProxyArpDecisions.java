@@ -0,0 +1,110 @@
+package ARP;
+
+import fib.Fib;
+import fib.FibEntry;
+import network.IfIndex;
+import network.IpAddres;
+import rib.RibListener;
+import rip.RouteChangeEvent;
+import util.LongObjectMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memoized proxy-ARP answers per (inIf, target), so a broadcast on a busy segment
+ * costs one map read instead of a FIB walk. Every decision carries the generation it
+ * was computed under; a route change or a {@link ProxyArpConfig} change bumps the
+ * generation, which retires all of them at once. Subscribe through
+ * {@code FibSync.addListener} so the FIB is already patched when the generation moves,
+ * and hook {@link #invalidate} to the config's listeners.
+ */
+public class ProxyArpDecisions implements RibListener {
+
+    private static final class Decision {
+        final long gen;
+        final boolean proxy;
+
+        Decision(long gen, boolean proxy) {
+            this.gen = gen;
+            this.proxy = proxy;
+        }
+    }
+
+    private final ProxyArpConfig cfg;
+    private final IfAddressBook ifBook;
+    private final Fib fib;
+    private final int maxEntries;
+
+    private final LongObjectMap<Decision> decisions = new LongObjectMap<>(256);
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ProxyArpDecisions(ProxyArpConfig cfg, IfAddressBook ifBook, Fib fib, int maxEntries) {
+        this.cfg = Objects.requireNonNull(cfg);
+        this.ifBook = Objects.requireNonNull(ifBook);
+        this.fib = Objects.requireNonNull(fib);
+        this.maxEntries = Math.max(16, maxEntries);
+    }
+
+    public boolean shouldProxyFor(String inIf, int target) {
+        int idx = IfIndex.find(inIf);
+        if (idx == 0) {
+            // only interfaces we own get an index; anything else is answered uncached
+            if (ifBook.getIp(inIf) == null) {
+                misses.increment();
+                return decide(inIf, target);
+            }
+            idx = IfIndex.of(inIf);
+        }
+        long k = IfIndex.key(idx, target);
+        long gen = generation.get();
+        Decision d = decisions.get(k);
+        if (d != null && d.gen == gen) {
+            hits.increment();
+            return d.proxy;
+        }
+        misses.increment();
+        boolean proxy = decide(inIf, target);
+        if (decisions.size() >= maxEntries) decisions.clear();
+        decisions.put(k, new Decision(gen, proxy));
+        return proxy;
+    }
+
+    private boolean decide(String inIf, int target) {
+        if (!cfg.isEnabledOn(inIf)) return false;
+        if (!IpAddres.isUnicast(target)) return false;
+
+        IpAddres self = ifBook.getIp(inIf);
+        if (self != null && self.toInt() == target) return false;
+
+        FibEntry fe = fib.lookup(target);
+        if (fe == null) return false;
+        String outIf = fe.outIf();
+        return outIf != null && !outIf.equals(inIf);
+    }
+
+    /** Retires every cached decision. */
+    public void invalidate() {
+        generation.incrementAndGet();
+        decisions.clear();
+    }
+
+    @Override
+    public void onRouteChange(RouteChangeEvent evt) {
+        invalidate();
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        m.put("entries", (long) decisions.size());
+        m.put("generation", generation.get());
+        m.put("hits", hits.sum());
+        m.put("misses", misses.sum());
+        return m;
+    }
+}
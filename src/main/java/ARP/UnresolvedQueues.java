@@ -0,0 +1,134 @@
+package ARP;
+
+import ports.ring.Frame;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small FIFO of frames per (outIf, next hop) while ARP resolution is in flight, in the
+ * spirit of Linux unres_qlen. Only the first frame for a next hop starts resolution;
+ * the rest wait here and leave in one batch on success, or are freed at once on failure.
+ * When a queue is full the oldest frame is dropped. Parked frames are retained, not
+ * copied, and released once sent or dropped.
+ */
+public class UnresolvedQueues {
+
+    @FunctionalInterface
+    public interface FrameSink {
+        void accept(Frame frame);
+    }
+
+    private static final class Key {
+        final String outIf;
+        final int nextHop;
+
+        Key(String outIf, int nextHop) {
+            this.outIf = outIf;
+            this.nextHop = nextHop;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return nextHop == other.nextHop && outIf.equals(other.outIf);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * outIf.hashCode() + Integer.hashCode(nextHop);
+        }
+    }
+
+    private static final class Pending {
+        final ArrayDeque<Frame> frames = new ArrayDeque<>(4);
+    }
+
+    private final int maxPerNextHop;
+    private final int maxNextHops;
+    private final Map<Key, Pending> pending = new HashMap<>();
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder drained = new LongAdder();
+    private final LongAdder droppedOverflow = new LongAdder();
+    private final LongAdder droppedFailed = new LongAdder();
+
+    public UnresolvedQueues(int maxPerNextHop, int maxNextHops) {
+        if (maxPerNextHop < 1) throw new IllegalArgumentException("maxPerNextHop >= 1");
+        if (maxNextHops < 1) throw new IllegalArgumentException("maxNextHops >= 1");
+        this.maxPerNextHop = maxPerNextHop;
+        this.maxNextHops = maxNextHops;
+    }
+
+    /**
+     * Parks a frame. Returns true when this created the queue, i.e. the caller must
+     * start resolution and later call {@link #drain} or {@link #fail}.
+     */
+    public synchronized boolean enqueue(String outIf, int nextHop, Frame frame) {
+        Key k = new Key(outIf, nextHop);
+        Pending p = pending.get(k);
+        boolean created = false;
+        if (p == null) {
+            if (pending.size() >= maxNextHops) {
+                droppedOverflow.increment();
+                return false;
+            }
+            p = new Pending();
+            pending.put(k, p);
+            created = true;
+        }
+        if (p.frames.size() >= maxPerNextHop) {
+            p.frames.pollFirst().release();
+            droppedOverflow.increment();
+        }
+        p.frames.addLast(frame.retain());
+        queued.increment();
+        return created;
+    }
+
+    /** Hands every parked frame for the next hop to sink, oldest first, and forgets the queue. */
+    public void drain(String outIf, int nextHop, FrameSink sink) {
+        Pending p;
+        synchronized (this) {
+            p = pending.remove(new Key(outIf, nextHop));
+        }
+        if (p == null) return;
+        Frame f;
+        while ((f = p.frames.pollFirst()) != null) {
+            try {
+                sink.accept(f);
+                drained.increment();
+            } finally {
+                f.release();
+            }
+        }
+    }
+
+    /** Resolution failed: drop the queued frames right away. */
+    public void fail(String outIf, int nextHop) {
+        Pending p;
+        synchronized (this) {
+            p = pending.remove(new Key(outIf, nextHop));
+        }
+        if (p == null) return;
+        droppedFailed.add(p.frames.size());
+        Frame f;
+        while ((f = p.frames.pollFirst()) != null) f.release();
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        synchronized (this) {
+            m.put("pendingNextHops", (long) pending.size());
+        }
+        m.put("queued", queued.sum());
+        m.put("drained", drained.sum());
+        m.put("droppedOverflow", droppedOverflow.sum());
+        m.put("droppedFailed", droppedFailed.sum());
+        return m;
+    }
+}
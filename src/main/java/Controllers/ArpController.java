@@ -3,17 +3,23 @@ package Controllers;
 import ARP.ArpCache;
 import ARP.ArpCache.ArpRow;
 import ARP.ArpEngine;
+import ARP.ArpRequestScheduler;
 import ARP.ProxyArpConfig;
+import ARP.ProxyArpDecisions;
+import ARP.UnresolvedQueues;
 import dto.ResolveReq;
 import network.IpAddres;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ports.CaptureFilters;
+
 import java.util.concurrent.TimeUnit;
 
 import java.net.InetAddress;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/arp")
@@ -26,11 +32,20 @@ public class ArpController {
     private final ArpEngine arp;
 
     private final ProxyArpConfig cfg;
+    private final UnresolvedQueues unresolved;
+    private final CaptureFilters filters;
+    private final ArpRequestScheduler scheduler;
+    private final ProxyArpDecisions proxyDecisions;
 
-    public ArpController(ArpCache cache, ArpEngine arp, ProxyArpConfig cfg) {
+    public ArpController(ArpCache cache, ArpEngine arp, ProxyArpConfig cfg, UnresolvedQueues unresolved,
+                         CaptureFilters filters, ArpRequestScheduler scheduler, ProxyArpDecisions proxyDecisions) {
         this.cache = cache;
         this.arp = arp ;
         this.cfg = cfg;
+        this.unresolved = unresolved;
+        this.filters = filters;
+        this.scheduler = scheduler;
+        this.proxyDecisions = proxyDecisions;
     }
 
     @GetMapping("/table")
@@ -67,8 +82,7 @@ public class ArpController {
             String norm = InetAddress.getByName(raw).getHostAddress();
             IpAddres key = new IpAddres(norm);
 
-            boolean existed = cache.get(key).isPresent();
-            cache.remove(key);
+            boolean existed = cache.removeEverywhere(key);
             return ResponseEntity.ok(existed ? ("Deleted " + norm) : ("No such ARP entry: " + norm));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -78,12 +92,14 @@ public class ArpController {
     @PostMapping("/enable")
     public ResponseEntity<String> setGlobal(@RequestParam boolean enabled) {
         cfg.setEnabled(enabled);
+        filters.refreshAll();
         return ResponseEntity.ok("proxy-arp global=" + enabled);
     }
 
     @PostMapping("/if/{ifName}/enable")
     public ResponseEntity<String> setOnIf(@PathVariable String ifName, @RequestParam boolean enabled) {
         if (enabled) cfg.enableOn(ifName); else cfg.disableOn(ifName);
+        filters.refresh(ifName);
         return ResponseEntity.ok("proxy-arp " + ifName + "=" + enabled);
     }
 
@@ -92,4 +108,24 @@ public class ArpController {
         return ResponseEntity.ok("proxy-arp global=" + cfg.isEnabled());
     }
 
+    @GetMapping("/proxy/decisions")
+    public Map<String, Long> proxyDecisions() {
+        return proxyDecisions.stats();
+    }
+
+    @GetMapping("/pending")
+    public Map<String, Long> pending() {
+        return unresolved.stats();
+    }
+
+    @GetMapping("/requests")
+    public Map<String, Long> requests() {
+        return scheduler.stats();
+    }
+
+    @GetMapping("/cache")
+    public Map<String, Long> cacheStats() {
+        return cache.stats();
+    }
+
 }
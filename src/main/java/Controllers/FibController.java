@@ -0,0 +1,150 @@
+package Controllers;
+
+import dto.ApiResponseWrapper;
+import fib.Dir248Fib;
+import fib.Fib;
+import fib.FibEntry;
+import fib.FibSync;
+import fib.TrieFib;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ports.RouteCache;
+import rib.Rib;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+@RestController
+@RequestMapping("/api/fib")
+public class FibController {
+
+    private final Fib fib;
+    private final Rib rib;
+    private final FibSync fibSync;
+    private final RouteCache routeCache;
+
+    public FibController(Fib fib, Rib rib, FibSync fibSync, RouteCache routeCache) {
+        this.fib = fib;
+        this.rib = rib;
+        this.fibSync = fibSync;
+        this.routeCache = routeCache;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponseWrapper<Map<String, Object>>> stats() {
+        return ResponseEntity.ok(new ApiResponseWrapper<>("ok", describe(fib)));
+    }
+
+    @GetMapping("/route-cache")
+    public ResponseEntity<ApiResponseWrapper<Map<String, Long>>> routeCache() {
+        return ResponseEntity.ok(new ApiResponseWrapper<>("ok", routeCache.stats()));
+    }
+
+    /**
+     * Installed equal-cost groups with the packets forwarded through each member. Counters
+     * come from the entry installed in the FIB, which lookups for the prefix count on.
+     */
+    @GetMapping("/ecmp")
+    public ResponseEntity<ApiResponseWrapper<Map<String, Object>>> ecmp() {
+        List<Map<String, Object>> groups = new ArrayList<>();
+        for (FibEntry e : fibSync.multipathEntries()) {
+            FibEntry served = fib.get(e.prefix(), e.length());
+            if (served == null) continue;
+            List<Map<String, Object>> members = new ArrayList<>();
+            for (FibEntry.Path p : served.paths()) {
+                Map<String, Object> m = new LinkedHashMap<>();
+                m.put("nextHop", p.nextHop() == null ? null : p.nextHop().toString());
+                m.put("outIf", p.outIf());
+                m.put("packets", p.packets());
+                members.add(m);
+            }
+            Map<String, Object> g = new LinkedHashMap<>();
+            g.put("prefix", e.route().network() + "/" + e.length());
+            g.put("paths", members);
+            groups.add(g);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("maxPaths", fibSync.maxPaths());
+        out.put("groups", groups);
+        return ResponseEntity.ok(new ApiResponseWrapper<>("ok", out));
+    }
+
+    /**
+     * Builds every FIB backend from the current RIB and times lookups over the same
+     * address sample. Non-active backends are built on the fly (DIR-24-8 allocates ~32 MB).
+     */
+    @GetMapping("/compare")
+    public ResponseEntity<ApiResponseWrapper<List<Map<String, Object>>>> compare(
+            @RequestParam(defaultValue = "200000") int samples) {
+        if (samples < 1000 || samples > 10_000_000) {
+            return ResponseEntity.badRequest().body(new ApiResponseWrapper<>("samples must be 1000..10000000", null));
+        }
+        List<FibEntry> winners = FibSync.winners(rib);
+        int[] addrs = sampleAddresses(winners, samples);
+
+        Map<String, Supplier<Fib>> backends = new LinkedHashMap<>();
+        backends.put("trie", TrieFib::new);
+        backends.put("dir248", Dir248Fib::new);
+
+        String active = fib instanceof TrieFib ? "trie" : fib instanceof Dir248Fib ? "dir248" : null;
+
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (var b : backends.entrySet()) {
+            Fib candidate;
+            if (b.getKey().equals(active)) {
+                candidate = fib;
+            } else {
+                candidate = b.getValue().get();
+                candidate.load(winners);
+            }
+            Timing timing = timeLookups(candidate, addrs);
+            Map<String, Object> row = describe(candidate);
+            row.put("backend", b.getKey());
+            row.put("active", candidate == fib);
+            row.put("nsPerLookup", timing.nsPerLookup());
+            row.put("hits", timing.hits());
+            out.add(row);
+        }
+        return ResponseEntity.ok(new ApiResponseWrapper<>("ok", out));
+    }
+
+    private static Map<String, Object> describe(Fib f) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("impl", f.getClass().getSimpleName());
+        m.put("entries", f.size());
+        m.put("memoryBytes", f.memoryBytes());
+        return m;
+    }
+
+    /** Half uniformly random, half inside installed prefixes, so both hits and misses are timed. */
+    private static int[] sampleAddresses(List<FibEntry> winners, int n) {
+        Random r = new Random(42);
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (winners.isEmpty() || (i & 1) == 0) {
+                out[i] = r.nextInt();
+            } else {
+                FibEntry e = winners.get(r.nextInt(winners.size()));
+                int hostBits = e.length() == 32 ? 0 : r.nextInt() & ~(int) (0xFFFFFFFFL << (32 - e.length()));
+                out[i] = e.prefix() | hostBits;
+            }
+        }
+        return out;
+    }
+
+    /** hits (matches per pass) is reported so the lookup loops have a result the JIT must keep. */
+    private record Timing(double nsPerLookup, long hits) {}
+
+    private static Timing timeLookups(Fib f, int[] addrs) {
+        long hits = 0;
+        for (int round = 0; round < 3; round++) {
+            for (int a : addrs) if (f.lookup(a) != null) hits++;
+        }
+        long t0 = System.nanoTime();
+        for (int round = 0; round < 5; round++) {
+            for (int a : addrs) if (f.lookup(a) != null) hits++;
+        }
+        long elapsed = System.nanoTime() - t0;
+        return new Timing((double) elapsed / (5.0 * addrs.length), hits / 8);
+    }
+}
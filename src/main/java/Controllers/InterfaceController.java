@@ -15,7 +15,9 @@ import ARP.ArpEngine;
 import rib.Rib;
 import rip.RipEngine;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @RestController
@@ -30,6 +32,9 @@ public class InterfaceController {
     private final Rib rib;
     private final Forwarder fwd;
     private final DHCPEngine dhcp;
+    private final RxPipeline pipeline;
+    private final TxSender tx;
+    private final CaptureFilters filters;
 
 
     public InterfaceController(
@@ -40,7 +45,10 @@ public class InterfaceController {
             LinkStatusWatcher watcher,
             Rib rib,
             Forwarder fwd,
-            DHCPEngine dhcp
+            DHCPEngine dhcp,
+            RxPipeline pipeline,
+            TxSender tx,
+            CaptureFilters filters
     ) {
         this.ifbm = ifbm;
         this.rx = rx;
@@ -50,7 +58,9 @@ public class InterfaceController {
         this.rib = rib;
         this.fwd = fwd;
         this.dhcp = dhcp;
-
+        this.pipeline = pipeline;
+        this.tx = tx;
+        this.filters = filters;
     }
 
     @PostMapping("/add_new")
@@ -154,6 +164,7 @@ public class InterfaceController {
             }
 
             rip.enableOnInterface(name, ifMac, ifIp);
+            filters.setRip(name, true);
             return ResponseEntity.ok(
                     new ApiResponseWrapper<>("rip_enabled", "RIP enabled on " + name)
             );
@@ -172,6 +183,7 @@ public class InterfaceController {
         }
 
         rip.disableOnInterface(name);
+        filters.setRip(name, false);
         return ResponseEntity.ok(
                 new ApiResponseWrapper<>("rip_disabled", "RIP disabled on " + name)
         );
@@ -224,6 +236,7 @@ public class InterfaceController {
             var gateway   = ifIp;
 
             dhcp.addServer(name, poolStart, poolEnd, ifMask, gateway, mode);
+            filters.setDhcp(name, true);
 
             return ResponseEntity.ok(
                     new ApiResponseWrapper<>(
@@ -253,12 +266,38 @@ public class InterfaceController {
         }
 
         dhcp.removeServer(name);
+        filters.setDhcp(name, false);
         return ResponseEntity.ok(
                 new ApiResponseWrapper<>("dhcp_disabled", "DHCP disabled on " + name)
         );
     }
 
 
+    @GetMapping("/rx/workers")
+    public ResponseEntity<ApiResponseWrapper<List<Map<String, Long>>>> rxWorkers() {
+        String mode = pipeline.isEnabled() ? "pipeline" : "inline";
+        return ResponseEntity.ok(new ApiResponseWrapper<>(mode, pipeline.stats()));
+    }
+
+    @GetMapping("/capture/stats")
+    public ResponseEntity<ApiResponseWrapper<Map<String, Map<String, Map<String, Long>>>>> captureStats() {
+        Map<String, Map<String, Map<String, Long>>> out = new LinkedHashMap<>();
+        out.put("kernel", ifbm.captureStats());
+        out.put("loops", rx.stats());
+        return ResponseEntity.ok(new ApiResponseWrapper<>("capture_stats", out));
+    }
+
+    @GetMapping("/capture/filters")
+    public ResponseEntity<ApiResponseWrapper<Map<String, String>>> captureFilters() {
+        return ResponseEntity.ok(new ApiResponseWrapper<>("capture_filters", filters.snapshot()));
+    }
+
+    @GetMapping("/tx/queues")
+    public ResponseEntity<ApiResponseWrapper<Map<String, Map<String, Long>>>> txQueues() {
+        String mode = tx.isAsync() ? "queued" : "sync";
+        return ResponseEntity.ok(new ApiResponseWrapper<>(mode, tx.stats()));
+    }
+
     private static String intToStr(int v) {
         int b1 = (v >>> 24) & 0xFF;
         int b2 = (v >>> 16) & 0xFF;
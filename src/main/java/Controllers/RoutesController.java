@@ -10,21 +10,31 @@ import network.RouterInterfaces;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import rib.Rib;
+import rib.RibChangeBus;
 import routingTable.AdminDistance;
 import routingTable.Proto;
 import routingTable.RouteEntry;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/routes")
 public class RoutesController {
 
     private final Rib rib;
+    private final RibChangeBus bus;
 
-    public RoutesController(Rib rib) {
+    public RoutesController(Rib rib, RibChangeBus bus) {
         this.rib = rib;
+        this.bus = bus;
     }
+
+    @GetMapping("/notifications")
+    public Map<String, Long> notifications() {
+        return bus.stats();
+    }
+
     @GetMapping("/get_all")
     public List<RDto> routes(){
         return rib.snapshot().stream().map(dto.RDto::from).toList();
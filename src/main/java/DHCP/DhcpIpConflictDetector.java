@@ -26,11 +26,11 @@ public class DhcpIpConflictDetector {
 
     public CompletableFuture<Boolean> probeIp(String ifName, IpAddres ip) {
 
-        var opt = cache.get(ip);
+        var opt = cache.get(ifName, ip);
         if (opt.isPresent()) {
             var e = opt.get();
 
-            if (e.state == ArpCache.State.REACHABLE && e.mac != null) {
+            if (e.state == ArpCache.State.REACHABLE && e.hasMac()) {
                 return CompletableFuture.completedFuture(true);   // busy
             }
 
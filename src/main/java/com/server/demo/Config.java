@@ -4,10 +4,15 @@ import ARP.*;
 import DHCP.DHCPEngine;
 import DHCP.DhcpIpConflictDetector;
 import DHCP.DhcpTx;
+import fib.Dir248Fib;
+import fib.Fib;
+import fib.FibSync;
+import fib.TrieFib;
 import network.Interface;
 import network.IpAddres;
 import network.RouterInterfaces;
 import org.pcap4j.util.MacAddress;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,9 +22,16 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import ports.*;
+import ports.ring.FramePool;
+import ports.ring.WaitStrategy;
 import rib.InMemoryRib;
 import rib.Rib;
+import rib.RibChangeBus;
+import rib.TrieRib;
 import rip.RipEngine;
+import util.TimingWheel;
+
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class Config {
@@ -50,8 +62,13 @@ public class Config {
     }
 
     @Bean
-    public LinkStatusWatcher linkStatusWatcher() {
-        return new LinkStatusWatcher();
+    public LinkStatusWatcher linkStatusWatcher(@Value("${router.link.probe:auto}") String probe,
+                                               @Value("${router.link.poll-ms:250}") long pollMs,
+                                               @Value("${router.link.ifconfig-poll-ms:1000}") long ifconfigPollMs,
+                                               @Value("${router.link.netlink:true}") boolean netlink) {
+        LinkProbe p = LinkProbe.byName(probe);
+        // every ifconfig poll forks one process per NIC, so it keeps the slow interval
+        return new LinkStatusWatcher(p, p instanceof IfconfigLinkProbe ? ifconfigPollMs : pollMs, netlink);
     }
 
 
@@ -63,23 +80,62 @@ public class Config {
     }
 
     @Bean
-    public IfBindingManager ifBindingManager(LinkStatusWatcher watcher) {
-        return new IfBindingManager(watcher);
+    public IfBindingManager ifBindingManager(LinkStatusWatcher watcher,
+                                             @Value("${router.capture.buffer-bytes:4194304}") int bufferBytes,
+                                             @Value("${router.capture.immediate:true}") boolean immediate,
+                                             @Value("${router.capture.snaplen:0}") int snaplen,
+                                             @Value("${router.capture.timeout-ms:10}") int timeoutMs,
+                                             @Value("${router.capture.dispatch-batch:64}") int dispatchBatch) {
+        return new IfBindingManager(watcher,
+                new CaptureConfig(bufferBytes, immediate, snaplen, timeoutMs, dispatchBatch));
+    }
+
+    @Bean
+    public PacketRxLoop packetRxLoop(IfBindingManager ifbm, RxPipeline pipeline) {
+        return new PacketRxLoop(ifbm, pipeline);
+    }
+
+    @Bean
+    public FramePool framePool(@Value("${router.frame.pool-size:8192}") int frames,
+                               @Value("${router.frame.size:2048}") int frameSize) {
+        return new FramePool(frames, frameSize);
+    }
+
+    @Bean
+    public RxPipeline rxPipeline(@Value("${router.rx.workers:0}") int workers,
+                                 @Value("${router.rx.ring-size:1024}") int ringSize,
+                                 FramePool framePool,
+                                 @Value("${router.ring.wait:park}") String wait) {
+        return new RxPipeline(workers, ringSize, framePool, WaitStrategy.parse(wait));
     }
 
     @Bean
-    public PacketRxLoop packetRxLoop(IfBindingManager ifbm) {
-        return new PacketRxLoop(ifbm);
+    public TxSender txSender(IfBindingManager ifbm,
+                             @Value("${router.tx.queue-depth:1024}") int queueDepth,
+                             FramePool framePool,
+                             @Value("${router.tx.batch:32}") int batch,
+                             @Value("${router.tx.overflow:drop}") String overflow,
+                             @Value("${router.tx.block-timeout-ms:5}") long blockTimeoutMs,
+                             @Value("${router.ring.wait:park}") String wait) {
+        TxSender tx = new TxSender(ifbm, queueDepth, framePool, batch,
+                TxSender.OverflowPolicy.parse(overflow), blockTimeoutMs, WaitStrategy.parse(wait));
+        if (tx.isAsync()) ifbm.addListener(tx);
+        return tx;
     }
 
     @Bean
-    public TxSender txSender(IfBindingManager ifbm) {
-        return new TxSender(ifbm);
+    public TimingWheel arpTimers(@Value("${router.arp.timer-tick-ms:100}") long tickMs) {
+        return new TimingWheel("arp-timers", tickMs, TimeUnit.MILLISECONDS, 512);
     }
 
     @Bean
-    public ArpCache arpCache() {
-        return new ArpCache();
+    public ArpCache arpCache(TimingWheel arpTimers,
+                             @Value("${router.arp.hold-down-min-ms:1000}") long holdMinMs,
+                             @Value("${router.arp.hold-down-max-ms:60000}") long holdMaxMs,
+                             @Value("${router.arp.refresh-lead-ms:3000}") long refreshLeadMs) {
+        ArpCache cache = new ArpCache(arpTimers, holdMinMs, holdMaxMs);
+        cache.setRefreshLead(refreshLeadMs);
+        return cache;
     }
 
     @Bean
@@ -99,8 +155,24 @@ public class Config {
     }
 
     @Bean
-    public ArpRequestScheduler arpRequestScheduler(IfAddressBook book, TxSender tx) {
-        return new ArpRequestScheduler(book, tx);
+    public ArpRequestScheduler arpRequestScheduler(IfAddressBook book, TxSender tx, TimingWheel arpTimers,
+                                                   @Value("${router.arp.request-rate:100}") int ratePerSec,
+                                                   @Value("${router.arp.request-burst:20}") int burst) {
+        return new ArpRequestScheduler(book, tx, arpTimers, ratePerSec, burst);
+    }
+
+    @Bean
+    public AdjacencyTable adjacencyTable(ArpCache cache, IfBindingManager ifbm) {
+        AdjacencyTable adj = new AdjacencyTable(cache);
+        cache.addListener(adj);
+        ifbm.addListener(adj);
+        return adj;
+    }
+
+    @Bean
+    public UnresolvedQueues unresolvedQueues(@Value("${router.arp.unres-qlen:3}") int perNextHop,
+                                             @Value("${router.arp.unres-max-nexthops:1024}") int maxNextHops) {
+        return new UnresolvedQueues(perNextHop, maxNextHops);
     }
 
     @Bean
@@ -108,19 +180,63 @@ public class Config {
         return new ProxyArpConfig();
     }
 
+    @Bean
+    public CaptureFilters captureFilters(IfBindingManager ifbm, IfAddressBook ifBook, ProxyArpConfig proxyCfg) {
+        CaptureFilters filters = new CaptureFilters(ifbm, ifBook, proxyCfg);
+        ifbm.addListener(filters);
+        return filters;
+    }
+
     @Bean
     public ArpEngine arpEngine(IfAddressBook ifBook,
                                ArpCache cache,
                                ArpRequestScheduler scheduler,
                                TxSender tx,
-                               Rib rib,
-                               ProxyArpConfig proxyCfg) {
-        return new ArpEngine(ifBook, cache, scheduler, tx, rib, proxyCfg);
+                               ProxyArpDecisions proxyDecisions) {
+        return new ArpEngine(ifBook, cache, scheduler, tx, proxyDecisions);
+    }
+
+    /** Chained behind FibSync so it only sees route changes the FIB already carries. */
+    @Bean
+    public ProxyArpDecisions proxyArpDecisions(ProxyArpConfig proxyCfg, IfAddressBook ifBook, Fib fib,
+                                               FibSync fibSync,
+                                               @Value("${router.arp.proxy-cache-size:4096}") int maxEntries) {
+        ProxyArpDecisions d = new ProxyArpDecisions(proxyCfg, ifBook, fib, maxEntries);
+        proxyCfg.addListener(d::invalidate);
+        fibSync.addListener(d);
+        return d;
+    }
+
+    @Bean
+    public RibChangeBus ribChangeBus(@Value("${router.rib.notify-window-ms:20}") long windowMs) {
+        return new RibChangeBus(windowMs);
+    }
+
+    @Bean
+    public Rib rib(@Value("${router.rib:trie}") String impl, RibChangeBus bus,
+                   @Value("${router.rib.change-log:4096}") int changeLog) {
+        return switch (impl.trim().toLowerCase()) {
+            case "trie" -> new TrieRib(bus, changeLog);
+            case "inmemory" -> new InMemoryRib(bus, changeLog);
+            default -> throw new IllegalArgumentException("Unknown router.rib: " + impl + " (trie|inmemory)");
+        };
     }
 
     @Bean
-    public Rib rib() {
-        return new InMemoryRib();
+    public Fib fib(@Value("${router.fib:trie}") String impl) {
+        return switch (impl.trim().toLowerCase()) {
+            case "trie" -> new TrieFib();
+            case "dir248" -> new Dir248Fib();
+            default -> throw new IllegalArgumentException("Unknown router.fib: " + impl + " (trie|dir248)");
+        };
+    }
+
+    @Bean
+    public FibSync fibSync(Rib rib, Fib fib,
+                           @Value("${router.ecmp.max-paths:4}") int maxPaths) {
+        FibSync sync = new FibSync(rib, fib, maxPaths);
+        sync.start();
+        return sync;
     }
 
     @Bean
@@ -129,8 +245,19 @@ public class Config {
     }
 
     @Bean
-    public Forwarder forwarder(Rib rib, ArpEngine arpEngine, TxSender txSender, IfAddressBook ifAddressBook) {
-        return new Forwarder(rib, arpEngine, txSender, ifAddressBook);
+    public Forwarder forwarder(Fib fib, ArpEngine arpEngine, TxSender txSender, IfAddressBook ifAddressBook,
+                               AdjacencyTable adjacencies, UnresolvedQueues unresolved, RouteCache routeCache) {
+        return new Forwarder(fib, arpEngine, txSender, ifAddressBook, adjacencies, unresolved, routeCache);
+    }
+
+    /** Chained behind FibSync like the proxy-ARP decisions, and dropped with any adjacency. */
+    @Bean
+    public RouteCache routeCache(FibSync fibSync, AdjacencyTable adjacencies,
+                                 @Value("${router.route-cache.size:4096}") int size) {
+        RouteCache c = new RouteCache(size);
+        fibSync.addListener(c);
+        adjacencies.addListener(c::invalidate);
+        return c;
     }
 
     @Bean
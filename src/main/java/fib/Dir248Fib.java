@@ -0,0 +1,286 @@
+package fib;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+
+/**
+ * DIR-24-8 FIB: a 2^24 entry table indexed by the top 24 bits of the destination,
+ * plus 256-entry overflow blocks for /24s that carry longer prefixes. Both tables
+ * are primitive {@code short[]} holding compact next-hop indices into {@link Tables#hops},
+ * so a lookup is at most two table reads. Single-path prefixes with the same next hop
+ * share one index, so the index space bounds distinct next hops plus multipath prefixes,
+ * not prefixes. A lookup is hops-only for a single-path prefix: the entry it returns
+ * may name another prefix with the same next hop. A multipath prefix keeps its own
+ * index, so its entry and per-member counters are its own. {@link #get} is always exact.
+ *
+ * <p>tbl24 slot: 0 = no route, 1..0x7FFF = next-hop index, 0x8000|b = overflow block b.
+ * Writers are serialized; readers take no lock. A block is filled before the
+ * release-store that links it into tbl24, so a reader never follows a half-built block.
+ * Freed indices and blocks are never reused within one {@link Tables}: a reader that
+ * loaded a stale slot still finds what it pointed at. When either space runs out the
+ * tables are rebuilt from the installed prefixes and published in one volatile write.
+ */
+public final class Dir248Fib implements Fib {
+
+    private static final int TBL24_SIZE = 1 << 24;
+    private static final int BLOCK = 256;
+    private static final int FLAG = 0x8000;
+    private static final int MAX_INDEX = 0x7FFF;
+    private static final int INITIAL_BLOCKS = 64;
+
+    private static final VarHandle SHORTS = MethodHandles.arrayElementVarHandle(short[].class);
+
+    /** An index or block space ran out; the tables need a rebuild. */
+    private static final class Exhausted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Exhausted(String what) { super(what, null, false, false); }
+    }
+
+    private static final class Tables {
+        final short[] tbl24 = new short[TBL24_SIZE];
+        volatile short[] tbl8 = new short[INITIAL_BLOCKS * BLOCK];
+        final FibEntry[] hops = new FibEntry[MAX_INDEX + 1];
+
+        // writer side only: prefix length + 1 that painted each slot (0 = empty)
+        final byte[] depth24 = new byte[TBL24_SIZE];
+        byte[] depth8 = new byte[INITIAL_BLOCKS * BLOCK];
+
+        final Map<Long, Installed> installed = new HashMap<>();
+        final Map<String, Integer> hopIndex = new HashMap<>();
+        final int[] refs = new int[MAX_INDEX + 1];
+        int nextIdx = 1;
+        int nextBlock = 0;
+        int blocksInUse = 0;
+    }
+
+    /** The exact entry installed for a prefix and the index its slots hold. */
+    private record Installed(FibEntry entry, int idx) {}
+
+    private volatile Tables t = new Tables();
+
+    @Override
+    public FibEntry lookup(int dst) {
+        Tables s = t;
+        int v = (short) SHORTS.getAcquire(s.tbl24, dst >>> 8) & 0xFFFF;
+        if ((v & FLAG) != 0) {
+            v = (short) SHORTS.getAcquire(s.tbl8, ((v & MAX_INDEX) << 8) | (dst & 0xFF)) & 0xFFFF;
+        }
+        return v == 0 ? null : s.hops[v];
+    }
+
+    @Override
+    public synchronized FibEntry get(int prefix, int length) {
+        Tables s = t;
+        Installed in = s.installed.get(key(prefix & mask(length), length));
+        return in == null ? null : in.entry();
+    }
+
+    @Override
+    public synchronized void install(FibEntry e) {
+        try {
+            install(t, e.prefix(), e.length(), e);
+        } catch (Exhausted ex) {
+            Tables fresh = rebuild(t);
+            install(fresh, e.prefix(), e.length(), e);
+            t = fresh;
+        }
+    }
+
+    @Override
+    public synchronized void withdraw(int prefix, int length) {
+        prefix &= mask(length);
+        Tables s = t;
+        Installed gone = s.installed.remove(key(prefix, length));
+        if (gone == null) return;
+
+        int covering = 0, coveringDepth = 0;
+        for (int m = length - 1; m >= 0; m--) {
+            Installed c = s.installed.get(key(prefix & mask(m), m));
+            if (c != null) { covering = c.idx(); coveringDepth = m + 1; break; }
+        }
+        paint(s, prefix, length, covering, coveringDepth, true);
+        release(s, gone.idx());
+        if (length > 24) collapseIfPlain(s, prefix >>> 8);
+    }
+
+    @Override
+    public synchronized void load(Collection<FibEntry> entries) {
+        Tables fresh = new Tables();
+        List<FibEntry> byLen = new ArrayList<>(entries);
+        byLen.sort(Comparator.comparingInt(FibEntry::length));
+        for (FibEntry e : byLen) install(fresh, e.prefix(), e.length(), e);
+        t = fresh;
+    }
+
+    @Override
+    public int size() { return t.installed.size(); }
+
+    @Override
+    public long memoryBytes() {
+        Tables s = t;
+        return 3L * s.tbl24.length + 3L * s.tbl8.length + 4L * s.hops.length
+                + 64L * s.installed.size();
+    }
+
+    public int blocksInUse() { return t.blocksInUse; }
+
+    /** Indices in use: distinct single next hops plus multipath prefixes. */
+    public int nextHops() { return t.hopIndex.size(); }
+
+
+    /** Throws {@link Exhausted} before touching the installed set, so a rebuild can replay it. */
+    private static void install(Tables s, int prefix, int length, FibEntry e) {
+        int idx = acquire(s, e);
+        if (length > 24) {
+            try {
+                blockFor(s, prefix >>> 8);
+            } catch (Exhausted ex) {
+                release(s, idx);
+                throw ex;
+            }
+        }
+        Installed old = s.installed.put(key(prefix, length), new Installed(e, idx));
+        if (old == null) {
+            paint(s, prefix, length, idx, length + 1, false);
+        } else if (old.idx() != idx) {
+            paint(s, prefix, length, idx, length + 1, true);
+            release(s, old.idx());
+        } else {
+            release(s, idx);
+        }
+    }
+
+    /** Replays the installed prefixes into fresh tables, which reclaims retired indices and blocks. */
+    private static Tables rebuild(Tables s) {
+        Tables fresh = new Tables();
+        List<Map.Entry<Long, Installed>> byLen = new ArrayList<>(s.installed.entrySet());
+        byLen.sort(Comparator.comparingLong(en -> en.getKey() & 0xFF));
+        try {
+            for (var en : byLen) {
+                long k = en.getKey();
+                install(fresh, (int) (k >>> 8), (int) (k & 0xFF), en.getValue().entry());
+            }
+        } catch (Exhausted ex) {
+            throw new IllegalStateException("DIR-24-8 " + ex.getMessage() + " exhausted", ex);
+        }
+        return fresh;
+    }
+
+    /**
+     * Walks every slot covered by prefix/length. In install mode (replace == false) a slot
+     * takes newIdx when its current route is less specific; in replace mode only slots
+     * painted by exactly this prefix (depth length + 1) are rewritten.
+     */
+    private static void paint(Tables s, int prefix, int length, int newIdx, int newDepth, boolean replace) {
+        int own = length + 1;
+        if (length <= 24) {
+            int start = prefix >>> 8;
+            int count = 1 << (24 - length);
+            for (int i = start; i < start + count; i++) {
+                int v = s.tbl24[i] & 0xFFFF;
+                if ((v & FLAG) != 0) {
+                    int base = (v & MAX_INDEX) << 8;
+                    paintRange(s, base, BLOCK, own, newIdx, newDepth, replace);
+                } else if (shouldPaint(s.depth24[i], own, replace)) {
+                    s.depth24[i] = (byte) newDepth;
+                    SHORTS.setRelease(s.tbl24, i, (short) newIdx);
+                }
+            }
+            return;
+        }
+
+        int base = blockFor(s, prefix >>> 8) << 8;
+        paintRange(s, base + (prefix & 0xFF), 1 << (32 - length), own, newIdx, newDepth, replace);
+    }
+
+    private static void paintRange(Tables s, int start, int count, int own, int newIdx, int newDepth, boolean replace) {
+        short[] t8 = s.tbl8;
+        byte[] d8 = s.depth8;
+        for (int j = start; j < start + count; j++) {
+            if (shouldPaint(d8[j], own, replace)) {
+                d8[j] = (byte) newDepth;
+                SHORTS.setRelease(t8, j, (short) newIdx);
+            }
+        }
+    }
+
+    private static boolean shouldPaint(byte depth, int own, boolean replace) {
+        return replace ? depth == own : depth < own;
+    }
+
+    /** Returns the overflow block for a /24 slot, splitting the slot into a new block if needed. */
+    private static int blockFor(Tables s, int slot) {
+        int v = s.tbl24[slot] & 0xFFFF;
+        if ((v & FLAG) != 0) return v & MAX_INDEX;
+
+        if (s.nextBlock > MAX_INDEX) throw new Exhausted("overflow blocks");
+        int b = s.nextBlock++;
+        if ((b + 1) * BLOCK > s.tbl8.length) {
+            int cap = Math.min(s.tbl8.length * 2, (MAX_INDEX + 1) * BLOCK);
+            s.depth8 = Arrays.copyOf(s.depth8, cap);
+            s.tbl8 = Arrays.copyOf(s.tbl8, cap);
+        }
+        Arrays.fill(s.tbl8, b << 8, (b << 8) + BLOCK, (short) v);
+        Arrays.fill(s.depth8, b << 8, (b << 8) + BLOCK, s.depth24[slot]);
+        s.blocksInUse++;
+        SHORTS.setRelease(s.tbl24, slot, (short) (FLAG | b));
+        return b;
+    }
+
+    /**
+     * Folds a block back into its tbl24 slot once no prefix longer than /24 is left in it.
+     * The block itself is retired, not reused, since readers may still be inside it.
+     */
+    private static void collapseIfPlain(Tables s, int slot) {
+        int v = s.tbl24[slot] & 0xFFFF;
+        if ((v & FLAG) == 0) return;
+        int base = (v & MAX_INDEX) << 8;
+        byte[] d8 = s.depth8;
+        for (int j = base; j < base + BLOCK; j++) {
+            if (d8[j] > 25) return;
+        }
+        s.depth24[slot] = d8[base];
+        SHORTS.setRelease(s.tbl24, slot, s.tbl8[base]);
+        s.blocksInUse--;
+    }
+
+    /**
+     * Index for e: shared with every single-path prefix using the same next hop, private
+     * to e's prefix when multipath. The slot is pointed at e, the latest entry installed
+     * under the index, so a multipath prefix's lookups see its current counters.
+     */
+    private static int acquire(Tables s, FibEntry e) {
+        String k = hopKey(e);
+        Integer idx = s.hopIndex.get(k);
+        if (idx == null) {
+            if (s.nextIdx > MAX_INDEX) throw new Exhausted("next-hop index space");
+            idx = s.nextIdx++;
+            s.hopIndex.put(k, idx);
+        }
+        s.hops[idx] = e;
+        s.refs[idx]++;
+        return idx;
+    }
+
+    /** Drops a reference; an unused index is retired, and its entry stays for stale readers. */
+    private static void release(Tables s, int idx) {
+        if (--s.refs[idx] == 0) s.hopIndex.remove(hopKey(s.hops[idx]));
+    }
+
+    private static String hopKey(FibEntry e) {
+        if (e.isMultipath()) return "*" + e.prefix() + "/" + e.length();
+        StringBuilder sb = new StringBuilder();
+        for (FibEntry.Path p : e.paths()) sb.append(p.outIf()).append('/').append(p.nextHopInt()).append(',');
+        return sb.toString();
+    }
+
+    private static int mask(int length) {
+        return length == 0 ? 0 : (int) (0xFFFFFFFFL << (32 - length));
+    }
+
+    private static long key(int prefix, int length) {
+        return ((long) prefix << 8) | length;
+    }
+}
@@ -0,0 +1,32 @@
+package fib;
+
+import java.util.Collection;
+
+/**
+ * Forwarding information base: winners only, read lock-free by the data path.
+ * Writers are serialized by the implementation.
+ */
+public interface Fib {
+
+    /**
+     * Longest-prefix match; null when nothing covers dst. Only the next hops are sure to
+     * be the matching prefix's: for a single-path prefix a backend may return an entry
+     * shared with other prefixes using the same next hop. Multipath entries are never
+     * shared, so their per-member counters are per prefix.
+     */
+    FibEntry lookup(int dst);
+
+    /** The entry installed for exactly prefix/length, null when it is not installed. */
+    FibEntry get(int prefix, int length);
+
+    void install(FibEntry e);
+    void withdraw(int prefix, int length);
+
+    /** Replaces the whole content in one publication. */
+    void load(Collection<FibEntry> entries);
+
+    int size();
+
+    /** Rough heap footprint of the lookup structures, for diagnostics. */
+    long memoryBytes();
+}
@@ -0,0 +1,95 @@
+package fib;
+
+import network.IpAddres;
+import routingTable.RouteEntry;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Forwarding entry: the winning route(s) for a prefix, with AD/metric already
+ * resolved and the next hops pre-converted for the data path. Equal-cost routes form
+ * a group of {@link Path}s; {@link #select} maps a flow hash onto one of them, and
+ * the accessors below describe the first.
+ */
+public final class FibEntry {
+
+    /** One member of the next-hop group, with its own packet counter. */
+    public static final class Path {
+        private final String outIf;
+        private final IpAddres nextHop;
+        private final int nextHopInt;
+        private final LongAdder packets;
+
+        Path(RouteEntry r, LongAdder packets) {
+            this.outIf = r.outIf();
+            this.nextHop = r.nextHop();
+            this.nextHopInt = nextHop == null ? 0 : nextHop.toInt();
+            this.packets = packets;
+        }
+
+        boolean sameHop(RouteEntry r) {
+            return Objects.equals(outIf, r.outIf()) && nextHopInt == (r.nextHop() == null ? 0 : r.nextHop().toInt());
+        }
+
+        public String outIf() { return outIf; }
+        public IpAddres nextHop() { return nextHop; }
+        public int nextHopInt() { return nextHopInt; }
+        public void count() { packets.increment(); }
+        public long packets() { return packets.sum(); }
+    }
+
+    private final RouteEntry route;
+    private final int prefix;
+    private final int length;
+    private final Path[] paths;
+
+    private FibEntry(List<RouteEntry> group, FibEntry previous) {
+        this.route = Objects.requireNonNull(group.get(0));
+        this.length = route.length();
+        this.prefix = route.network().toInt() & IpAddres.toPrefixMaskInt(length);
+        this.paths = new Path[group.size()];
+        for (int i = 0; i < paths.length; i++) paths[i] = new Path(group.get(i), counterFor(previous, group.get(i)));
+    }
+
+    public static FibEntry of(RouteEntry route) { return new FibEntry(List.of(route), null); }
+
+    /** ECMP entry over the first maxPaths routes of a non-empty group. */
+    public static FibEntry of(List<RouteEntry> group, int maxPaths) {
+        return of(group, maxPaths, null);
+    }
+
+    /** Like {@link #of(List, int)}; members also in previous keep counting on its counters. */
+    public static FibEntry of(List<RouteEntry> group, int maxPaths, FibEntry previous) {
+        if (group.isEmpty()) throw new IllegalArgumentException("empty next-hop group");
+        return new FibEntry(group.size() > maxPaths ? group.subList(0, Math.max(1, maxPaths)) : group, previous);
+    }
+
+    private static LongAdder counterFor(FibEntry previous, RouteEntry r) {
+        if (previous != null) {
+            for (Path p : previous.paths) if (p.sameHop(r)) return p.packets;
+        }
+        return new LongAdder();
+    }
+
+    public RouteEntry route() { return route; }
+    public int prefix() { return prefix; }
+    public int length() { return length; }
+    public String outIf() { return paths[0].outIf; }
+    /** null for directly connected prefixes. */
+    public IpAddres nextHop() { return paths[0].nextHop; }
+    /** 0 for directly connected prefixes. */
+    public int nextHopInt() { return paths[0].nextHopInt; }
+
+    public boolean isMultipath() { return paths.length > 1; }
+    public List<Path> paths() { return List.of(paths); }
+
+    /** The member a flow with this hash uses; the same hash always picks the same member. */
+    public Path select(int flowHash) {
+        return paths.length == 1 ? paths[0] : paths[Integer.remainderUnsigned(flowHash, paths.length)];
+    }
+
+    @Override
+    public String toString() { return route.toString(); }
+}
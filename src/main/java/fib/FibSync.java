@@ -0,0 +1,133 @@
+package fib;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rib.Rib;
+import rib.RibListener;
+import rip.RouteChangeEvent;
+import routingTable.RouteEntry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps a {@link Fib} in step with the {@link Rib}: full load from the snapshot on
+ * {@link #start}, then every changed prefix is re-resolved with {@link Rib#bestPathsFor} and
+ * patched. Equal-cost groups become multipath entries of at most maxPaths members.
+ * Listeners added here get each RIB event only after the FIB has been patched for it.
+ */
+public class FibSync implements RibListener {
+
+    private static final Logger log = LoggerFactory.getLogger(FibSync.class);
+
+    private final Rib rib;
+    private final Fib fib;
+    private final int maxPaths;
+    private final List<RibListener> downstream = new CopyOnWriteArrayList<>();
+    /** Installed entries with more than one path, by prefix key; read by diagnostics. */
+    private final Map<Long, FibEntry> multipath = new ConcurrentHashMap<>();
+
+    public FibSync(Rib rib, Fib fib) {
+        this(rib, fib, 1);
+    }
+
+    public FibSync(Rib rib, Fib fib, int maxPaths) {
+        if (maxPaths < 1) throw new IllegalArgumentException("maxPaths must be >= 1");
+        this.rib = Objects.requireNonNull(rib);
+        this.fib = Objects.requireNonNull(fib);
+        this.maxPaths = maxPaths;
+    }
+
+    /** Subscribes before the first load, so no change falls between the two. */
+    public void start() {
+        rib.addListener(this);
+        resync();
+    }
+
+    public void resync() {
+        List<FibEntry> entries = winners(rib, maxPaths);
+        fib.load(entries);
+        multipath.clear();
+        for (FibEntry e : entries) track(e);
+    }
+
+    /** One single-path entry per prefix from the current RIB snapshot. */
+    public static List<FibEntry> winners(Rib rib) {
+        Map<Long, RouteEntry> winners = new LinkedHashMap<>();
+        for (RouteEntry e : rib.snapshot()) {
+            winners.merge(key(e), e, (a, b) -> better(a, b));
+        }
+        return winners.values().stream().map(FibEntry::of).toList();
+    }
+
+    /** One entry per prefix, carrying up to maxPaths equal-cost next hops. */
+    public static List<FibEntry> winners(Rib rib, int maxPaths) {
+        Set<Long> seen = new LinkedHashSet<>();
+        List<FibEntry> out = new ArrayList<>();
+        for (RouteEntry e : rib.snapshot()) {
+            if (!seen.add(key(e))) continue;
+            List<RouteEntry> group = rib.bestPathsFor(e.network(), e.length());
+            if (!group.isEmpty()) out.add(FibEntry.of(group, maxPaths));
+        }
+        return out;
+    }
+
+    public int maxPaths() { return maxPaths; }
+
+    /** Point-in-time copy of the installed multipath entries. */
+    public List<FibEntry> multipathEntries() { return List.copyOf(multipath.values()); }
+
+    public void addListener(RibListener l) { downstream.add(l); }
+
+    @Override
+    public void onRouteChange(RouteChangeEvent evt) {
+        for (RouteEntry e : evt.getAddedOrUpdated()) patch(e);
+        for (RouteEntry e : evt.getRemoved()) patch(e);
+        for (RibListener l : downstream) {
+            try { l.onRouteChange(evt); } catch (Throwable ignored) {}
+        }
+    }
+
+    /** A FIB that cannot take the change is logged and left behind, never silently. */
+    private void patch(RouteEntry changed) {
+        try {
+            apply(changed);
+        } catch (RuntimeException ex) {
+            log.error("FIB update for {}/{} failed, FIB no longer matches the RIB: {}",
+                    changed.network(), changed.length(), ex.getMessage(), ex);
+        }
+    }
+
+    private void apply(RouteEntry changed) {
+        List<RouteEntry> group = rib.bestPathsFor(changed.network(), changed.length());
+        if (!group.isEmpty()) {
+            FibEntry e = FibEntry.of(group, maxPaths, fib.get(changed.network().toInt(), changed.length()));
+            fib.install(e);
+            track(e);
+        } else {
+            fib.withdraw(changed.network().toInt(), changed.length());
+            multipath.remove(key(changed));
+        }
+    }
+
+    private void track(FibEntry e) {
+        long k = ((long) e.prefix() << 8) | e.length();
+        if (e.isMultipath()) multipath.put(k, e); else multipath.remove(k);
+    }
+
+    private static long key(RouteEntry e) {
+        return ((long) e.network().toInt() << 8) | e.length();
+    }
+
+    private static RouteEntry better(RouteEntry a, RouteEntry b) {
+        if (a.ad().value != b.ad().value) return a.ad().value < b.ad().value ? a : b;
+        return b.metric() < a.metric() ? b : a;
+    }
+}
@@ -0,0 +1,105 @@
+package fib;
+
+import java.util.Collection;
+
+/**
+ * Binary trie FIB with RCU-style publication: nodes are immutable, writers copy the
+ * path to the changed prefix and swap the root through one volatile write, so
+ * {@link #lookup} never blocks and never sees a half-applied update.
+ */
+public final class TrieFib implements Fib {
+
+    private static final class Node {
+        final Node zero, one;
+        final FibEntry entry;
+
+        Node(Node zero, Node one, FibEntry entry) {
+            this.zero = zero;
+            this.one = one;
+            this.entry = entry;
+        }
+    }
+
+    private volatile Node root;
+    private volatile int size;
+
+    @Override
+    public FibEntry lookup(int dst) {
+        FibEntry best = null;
+        Node n = root;
+        for (int depth = 0; n != null; depth++) {
+            if (n.entry != null) best = n.entry;
+            if (depth == 32) break;
+            n = ((dst >>> (31 - depth)) & 1) == 0 ? n.zero : n.one;
+        }
+        return best;
+    }
+
+    @Override
+    public FibEntry get(int prefix, int length) {
+        Node n = root;
+        for (int depth = 0; n != null && depth < length; depth++) {
+            n = ((prefix >>> (31 - depth)) & 1) == 0 ? n.zero : n.one;
+        }
+        return n == null ? null : n.entry;
+    }
+
+    @Override
+    public synchronized void install(FibEntry e) {
+        int[] delta = new int[1];
+        root = with(root, e.prefix(), e.length(), 0, e, delta);
+        size += delta[0];
+    }
+
+    @Override
+    public synchronized void withdraw(int prefix, int length) {
+        int[] delta = new int[1];
+        root = with(root, prefix, length, 0, null, delta);
+        size += delta[0];
+    }
+
+    @Override
+    public synchronized void load(Collection<FibEntry> entries) {
+        Node r = null;
+        int[] delta = new int[1];
+        for (FibEntry e : entries) r = with(r, e.prefix(), e.length(), 0, e, delta);
+        root = r;
+        size = delta[0];
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public long memoryBytes() {
+        return NODE_BYTES * countNodes(root);
+    }
+
+    private static final long NODE_BYTES = 24;
+
+    private static long countNodes(Node n) {
+        return n == null ? 0 : 1 + countNodes(n.zero) + countNodes(n.one);
+    }
+
+    /** Returns a copy of n with prefix/length set to e (or cleared when e == null); empty nodes collapse to null. */
+    private static Node with(Node n, int prefix, int length, int depth, FibEntry e, int[] delta) {
+        Node zero = n == null ? null : n.zero;
+        Node one = n == null ? null : n.one;
+        FibEntry entry = n == null ? null : n.entry;
+
+        if (depth == length) {
+            if (entry == null && e != null) delta[0]++;
+            if (entry != null && e == null) delta[0]--;
+            entry = e;
+        } else if (((prefix >>> (31 - depth)) & 1) == 0) {
+            if (zero == null && e == null) return n;
+            zero = with(zero, prefix, length, depth + 1, e, delta);
+        } else {
+            if (one == null && e == null) return n;
+            one = with(one, prefix, length, depth + 1, e, delta);
+        }
+
+        if (zero == null && one == null && entry == null) return null;
+        return new Node(zero, one, entry);
+    }
+}
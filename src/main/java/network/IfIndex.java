@@ -0,0 +1,54 @@
+package network;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small stable integer per logical interface name, for tables that key on
+ * (ifIndex, address) as one primitive long. Indices start at 1 and are never reused,
+ * so a re-added interface gets its old index back.
+ */
+public final class IfIndex {
+
+    private static final Map<String, Integer> byName = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[16];
+    private static int next = 1;
+
+    private IfIndex() {}
+
+    /** Index for ifName, assigning the next free one on first use. */
+    public static int of(String ifName) {
+        Integer idx = byName.get(ifName);
+        return idx != null ? idx : assign(ifName);
+    }
+
+    /** Index for ifName, or 0 when it was never assigned; never assigns one. */
+    public static int find(String ifName) {
+        Integer idx = byName.get(ifName);
+        return idx != null ? idx : 0;
+    }
+
+    /** Name for an index handed out by {@link #of}, or null. */
+    public static String name(int ifIndex) {
+        String[] n = names;
+        return ifIndex > 0 && ifIndex < n.length ? n[ifIndex] : null;
+    }
+
+    /** (ifIndex, IPv4) packed as one key: index in the high word, address in the low word. */
+    public static long key(int ifIndex, int ip) {
+        return ((long) ifIndex << 32) | (ip & 0xFFFFFFFFL);
+    }
+
+    private static synchronized int assign(String ifName) {
+        Integer idx = byName.get(ifName);
+        if (idx != null) return idx;
+        int i = next++;
+        String[] n = names;
+        if (i >= n.length) n = Arrays.copyOf(n, n.length * 2);
+        n[i] = ifName;
+        names = n;
+        byName.put(ifName, i);
+        return i;
+    }
+}
@@ -59,6 +59,12 @@ public class IpAddres implements Comparable<IpAddres> {
         return ((o1 & 0xFF) << 24) | ((o2 & 0xFF) << 16) | ((o3 & 0xFF) << 8) | (o4 & 0xFF);
     }
 
+    /** Address of a 4-byte InetAddress as an int, without building an IpAddres. */
+    public static int fromInet4(Inet4Address a) {
+        byte[] b = a.getAddress();
+        return ((b[0] & 0xFF) << 24) | ((b[1] & 0xFF) << 16) | ((b[2] & 0xFF) << 8) | (b[3] & 0xFF);
+    }
+
     public static IpAddres fromInt(int val) {
         int a = (val >>> 24) & 0xFF;
         int b = (val >>> 16) & 0xFF;
@@ -84,6 +90,16 @@ public class IpAddres implements Comparable<IpAddres> {
         return !isLoopback() && !isLinkLocal() && !isMulticast() && !isBroadcast() && !isUnspecified();
     }
 
+    /** Same rules as {@link #isUnicast()} on a packed address, without allocating. */
+    public static boolean isUnicast(int addr) {
+        int o1 = addr >>> 24;
+        int o2 = (addr >>> 16) & 0xFF;
+        if (o1 == 127) return false;
+        if (o1 == 169 && o2 == 254) return false;
+        if (o1 >= 224 && o1 <= 239) return false;
+        return addr != -1 && addr != 0;
+    }
+
 
     public boolean inSubnet(IpAddres network, int prefix) {
         int mask = toPrefixMaskInt(prefix);
@@ -0,0 +1,50 @@
+package ports;
+
+import network.IpAddres;
+import org.pcap4j.util.MacAddress;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builds the smallest capture filter an interface needs for the features enabled on it.
+ * Always kept: IP and ARP unicast to our MAC (transit traffic, ARP replies, unicast
+ * control), ARP requests for our own address, and gratuitous ARP. RIP multicast, DHCP
+ * client broadcasts and the remaining ARP requests (for proxy-ARP) only when enabled.
+ */
+public final class BpfFilterBuilder {
+
+    private static final String RIP_GROUP = "224.0.0.9";
+
+    private final MacAddress mac;
+    private IpAddres ip;
+    private boolean rip;
+    private boolean dhcp;
+    private boolean proxyArp;
+
+    public BpfFilterBuilder(MacAddress mac) {
+        this.mac = Objects.requireNonNull(mac, "mac");
+    }
+
+    /** Our address on the interface; without it every ARP broadcast is kept. */
+    public BpfFilterBuilder ip(IpAddres ip) { this.ip = ip; return this; }
+    public BpfFilterBuilder rip(boolean on) { this.rip = on; return this; }
+    public BpfFilterBuilder dhcp(boolean on) { this.dhcp = on; return this; }
+    public BpfFilterBuilder proxyArp(boolean on) { this.proxyArp = on; return this; }
+
+    public String build() {
+        List<String> terms = new ArrayList<>(5);
+        terms.add("(ether dst " + mac + " and (ip or arp))");
+        if (proxyArp || ip == null) {
+            terms.add("(arp and ether broadcast)");
+        } else {
+            // arp[14:4] = sender IP, arp[24:4] = target IP (Ethernet/IPv4 ARP)
+            terms.add(String.format("(arp and ether broadcast and (arp[24:4] = 0x%08x or arp[14:4] = arp[24:4]))",
+                    ip.toInt()));
+        }
+        if (rip) terms.add("(dst host " + RIP_GROUP + " and udp port 520)");
+        if (dhcp) terms.add("(udp src port 68 and udp dst port 67)");
+        return String.join(" or ", terms);
+    }
+}
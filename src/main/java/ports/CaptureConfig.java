@@ -0,0 +1,54 @@
+package ports;
+
+import java.net.NetworkInterface;
+import java.net.SocketException;
+
+/**
+ * How a bound interface is opened for capture. The kernel buffer absorbs bursts while
+ * the RX thread is busy, immediate mode hands frames over without waiting for the
+ * buffer timeout, and the snaplen follows the NIC MTU (plus Ethernet and one VLAN tag)
+ * unless set explicitly. dispatchBatch caps how many frames one pcap_dispatch call
+ * delivers, so the JNI crossing is paid per batch rather than per frame.
+ */
+public final class CaptureConfig {
+
+    private static final int L2_OVERHEAD = 14 + 4;
+    private static final int DEFAULT_MTU = 1500;
+
+    private final int bufferBytes;
+    private final boolean immediate;
+    private final int snaplen;        // 0 = derive from MTU
+    private final int timeoutMs;
+    private final int dispatchBatch;
+
+    public CaptureConfig(int bufferBytes, boolean immediate, int snaplen, int timeoutMs, int dispatchBatch) {
+        if (bufferBytes < 0 || snaplen < 0 || timeoutMs < 0) throw new IllegalArgumentException("negative capture setting");
+        if (dispatchBatch < 1) throw new IllegalArgumentException("dispatchBatch >= 1");
+        this.bufferBytes = bufferBytes;
+        this.immediate = immediate;
+        this.snaplen = snaplen;
+        this.timeoutMs = timeoutMs;
+        this.dispatchBatch = dispatchBatch;
+    }
+
+    public static CaptureConfig defaults() {
+        return new CaptureConfig(4 << 20, true, 0, 10, 64);
+    }
+
+    public int bufferBytes() { return bufferBytes; }
+    public boolean immediate() { return immediate; }
+    public int timeoutMs() { return timeoutMs; }
+    public int dispatchBatch() { return dispatchBatch; }
+
+    /** Explicit snaplen, or MTU + L2 header + one VLAN tag of the NIC. */
+    public int snaplenFor(String nicName) {
+        if (snaplen > 0) return snaplen;
+        int mtu = DEFAULT_MTU;
+        try {
+            NetworkInterface ni = NetworkInterface.getByName(nicName);
+            if (ni != null && ni.getMTU() > 0) mtu = ni.getMTU();
+        } catch (SocketException ignored) {
+        }
+        return mtu + L2_OVERHEAD;
+    }
+}
@@ -0,0 +1,74 @@
+package ports;
+
+import ARP.IfAddressBook;
+import ARP.ProxyArpConfig;
+import org.pcap4j.util.MacAddress;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps each bound interface's BPF program in step with what runs on it. RIP and DHCP
+ * state is reported by the controllers that toggle them; proxy-ARP is read from
+ * {@link ProxyArpConfig} on every rebuild. A rebuild goes through
+ * {@link IfBindingManager#setFilter}, so the kernel drops everything else before it
+ * reaches the JVM.
+ */
+public class CaptureFilters implements IfBindingManager.BindingListener {
+
+    private final IfBindingManager binding;
+    private final IfAddressBook ifBook;
+    private final ProxyArpConfig proxyCfg;
+
+    private final Set<String> ripIfs = ConcurrentHashMap.newKeySet();
+    private final Set<String> dhcpIfs = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> applied = new ConcurrentHashMap<>();
+
+    public CaptureFilters(IfBindingManager binding, IfAddressBook ifBook, ProxyArpConfig proxyCfg) {
+        this.binding = Objects.requireNonNull(binding);
+        this.ifBook = Objects.requireNonNull(ifBook);
+        this.proxyCfg = Objects.requireNonNull(proxyCfg);
+    }
+
+    public void setRip(String ifName, boolean on) {
+        if (on) ripIfs.add(ifName); else ripIfs.remove(ifName);
+        refresh(ifName);
+    }
+
+    public void setDhcp(String ifName, boolean on) {
+        if (on) dhcpIfs.add(ifName); else dhcpIfs.remove(ifName);
+        refresh(ifName);
+    }
+
+    /** Recompiles and applies the filter of one interface if it is bound and the program changed. */
+    public synchronized void refresh(String ifName) {
+        MacAddress mac = binding.getMac(ifName);
+        if (mac == null) return;
+        String bpf = new BpfFilterBuilder(mac)
+                .ip(ifBook.getIp(ifName))
+                .rip(ripIfs.contains(ifName))
+                .dhcp(dhcpIfs.contains(ifName))
+                .proxyArp(proxyCfg.isEnabledOn(ifName))
+                .build();
+        if (bpf.equals(applied.get(ifName))) return;
+        if (binding.setFilter(ifName, bpf)) applied.put(ifName, bpf);
+    }
+
+    /** After a global change such as the proxy-ARP switch. */
+    public void refreshAll() {
+        for (String ifName : applied.keySet()) refresh(ifName);
+    }
+
+    @Override
+    public void onBindingChange(String ifName, boolean bound) {
+        applied.remove(ifName);
+        if (bound) refresh(ifName);
+    }
+
+    public Map<String, String> snapshot() {
+        return new TreeMap<>(applied);
+    }
+}
@@ -4,16 +4,28 @@ import ARP.ArpEngine;
 import DHCP.DHCPEngine;
 import network.IpAddres;
 import org.pcap4j.packet.*;
-import org.pcap4j.packet.namednumber.EtherType;
-import org.pcap4j.packet.namednumber.IpNumber;
-import org.pcap4j.packet.namednumber.UdpPort;
 import org.pcap4j.util.MacAddress;
+import ports.ring.Frame;
 import rip.RipEngine;
-import rip.RipParser;
 
+import java.util.Arrays;
 
+/**
+ * Classifies frames on fixed header offsets (EtherType, IP protocol, UDP ports) without
+ * decoding them. Only the control plane pays for parsing: ARP is decoded into pcap4j
+ * objects, RIP and DHCP get their UDP payload sliced out, and transit IPv4 goes straight
+ * to the forwarder on the raw buffer.
+ */
 public class DemuxPacketHandler implements PacketHandler {
 
+    private static final int ETH_HLEN = 14;
+    private static final int ETHERTYPE_IPV4 = 0x0800;
+    private static final int ETHERTYPE_ARP = 0x0806;
+    private static final int PROTO_UDP = 17;
+    private static final int PORT_RIP = 520;
+    private static final int PORT_DHCP_SERVER = 67;
+    private static final int PORT_DHCP_CLIENT = 68;
+
     private final ArpEngine arp;
     private final RipEngine rip;
     private final Forwarder fwd;
@@ -27,59 +39,67 @@ public class DemuxPacketHandler implements PacketHandler {
     }
 
     @Override
-    public void onPacket(EthernetPacket eth, String ifName) {
-        EtherType et = eth.getHeader().getType();
-
-        if (EtherType.ARP.equals(et)) {
-            System.out.println("demux arp works");
-            arp.onEthernetFrame(eth, ifName);
-            System.out.println();
+    public void onFrame(Frame frame) {
+        byte[] f = frame.data();
+        int len = frame.length();
+        String ifName = frame.ifName();
+        if (len < ETH_HLEN) return;
+
+        int etherType = u16(f, 12);
+        if (etherType == ETHERTYPE_ARP) {
+            EthernetPacket eth = decode(f, len);
+            if (eth != null) arp.onEthernetFrame(eth, ifName);
             return;
-        } else if (!EtherType.IPV4.equals(et)) {
-            return; // ignore
-        } else if (!(eth.getPayload() instanceof IpV4Packet ip4)) return;
-
-        else {
-            IpV4Packet ip = (IpV4Packet) eth.getPayload();
-
-            if (ip.getHeader().getProtocol().equals(IpNumber.UDP) && ip.getPayload() instanceof UdpPacket udp) {
-                int srcPort = udp.getHeader().getSrcPort().valueAsInt();
-                int dstPort = udp.getHeader().getDstPort().valueAsInt();
-
-
-                if (srcPort == 520 || dstPort == 520) {
-                    System.out.println("we have rip here");
-
-                    byte[] udpPayload = udp.getPayload() != null ?
-                            udp.getPayload().getRawData() : new byte[0];
-
-                    IpAddres srcIp = new IpAddres(ip.getHeader().getSrcAddr().getHostAddress());
+        }
+        if (etherType != ETHERTYPE_IPV4 || len < ETH_HLEN + 20) return;
+
+        int ihl = (f[ETH_HLEN] & 0x0F) << 2;
+        int l4 = ETH_HLEN + ihl;
+        boolean firstFragment = (u16(f, ETH_HLEN + 6) & 0x1FFF) == 0;
+        if (f[ETH_HLEN + 9] == PROTO_UDP && firstFragment && len >= l4 + 8) {
+            int srcPort = u16(f, l4);
+            int dstPort = u16(f, l4 + 2);
+            boolean isRip = srcPort == PORT_RIP || dstPort == PORT_RIP;
+            boolean isDhcp = (srcPort == PORT_DHCP_CLIENT && dstPort == PORT_DHCP_SERVER)
+                    || (srcPort == PORT_DHCP_SERVER && dstPort == PORT_DHCP_CLIENT);
+            if (isRip || isDhcp) {
+                int end = Math.min(len, l4 + Math.max(8, u16(f, l4 + 4)));
+                byte[] udpPayload = Arrays.copyOfRange(f, l4 + 8, end);
+                IpAddres srcIp = IpAddres.fromInt(u32(f, ETH_HLEN + 12));
+                if (isRip) {
                     rip.onRipPacket(ifName, srcIp, udpPayload);
-                    return;
+                } else if (dhcp != null) {
+                    MacAddress srcMac = MacAddress.getByAddress(Arrays.copyOfRange(f, 6, 12));
+                    dhcp.onDhcpPacket(ifName, srcMac, srcIp, udpPayload);
                 }
+                return;
+            }
+        }
 
+        if (fwd.forward(frame)) return;
+        EthernetPacket eth = decode(f, len);
+        if (eth != null) fwd.onIpv4Frame(eth, ifName);
+    }
 
-                if ((srcPort == 68 && dstPort == 67) || (srcPort == 67 && dstPort == 68)) {
-
-                    System.out.println("we have dhcp here");
-
-                    byte[] udpPayload = udp.getPayload() != null
-                            ? udp.getPayload().getRawData()
-                            : new byte[0];
-
-                    MacAddress srcMac = eth.getHeader().getSrcAddr();
-                    IpAddres srcIp = new IpAddres(ip.getHeader().getSrcAddr().getHostAddress());
-
-                    if (dhcp != null) {
-                        System.out.println("DHCP working");
-                        dhcp.onDhcpPacket(ifName, srcMac, srcIp, udpPayload);
-                    }
-                    return;
-                }
+    @Override
+    public void onPacket(EthernetPacket eth, String ifName) {
+        byte[] raw = eth.getRawData();
+        onFrame(Frame.wrap(ifName, raw, raw.length));
+    }
 
-            }
+    private static EthernetPacket decode(byte[] f, int len) {
+        try {
+            return EthernetPacket.newPacket(f, 0, len);
+        } catch (IllegalRawDataException e) {
+            return null;
         }
-        fwd.onIpv4Frame(eth, ifName);
+    }
+
+    private static int u16(byte[] f, int off) {
+        return ((f[off] & 0xFF) << 8) | (f[off + 1] & 0xFF);
+    }
 
+    private static int u32(byte[] f, int off) {
+        return (u16(f, off) << 16) | u16(f, off + 2);
     }
 }
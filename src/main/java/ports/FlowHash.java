@@ -0,0 +1,73 @@
+package ports;
+
+/**
+ * Flow hash over raw Ethernet frames. IPv4 hashes the 5-tuple (3-tuple for fragments
+ * and non-TCP/UDP so all pieces of a datagram agree); ARP hashes the sender IP; anything
+ * else hashes the source MAC. Same flow -> same value, with no allocation.
+ */
+public final class FlowHash {
+
+    private FlowHash() {}
+
+    private static final int ETH_HLEN = 14;
+
+    public static int of(byte[] f, int len) {
+        if (len < ETH_HLEN) return 0;
+        int type = ((f[12] & 0xFF) << 8) | (f[13] & 0xFF);
+
+        if (type == 0x0800 && len >= ETH_HLEN + 20) {
+            int ihl = (f[ETH_HLEN] & 0x0F) * 4;
+            int proto = f[ETH_HLEN + 9] & 0xFF;
+            int src = readInt(f, ETH_HLEN + 12);
+            int dst = readInt(f, ETH_HLEN + 16);
+            int fragBits = ((f[ETH_HLEN + 6] & 0x3F) << 8) | (f[ETH_HLEN + 7] & 0xFF);
+            int ports = 0;
+            if ((proto == 6 || proto == 17) && fragBits == 0 && len >= ETH_HLEN + ihl + 4) {
+                ports = readInt(f, ETH_HLEN + ihl);
+            }
+            return of(src, dst, proto, ports);
+        }
+        if (type == 0x0806 && len >= ETH_HLEN + 18) {
+            return mix(readInt(f, ETH_HLEN + 14));
+        }
+        return mix(readInt(f, 8) ^ ((f[6] & 0xFF) << 8 | (f[7] & 0xFF)));
+    }
+
+    /**
+     * IPv4 only, for next-hop selection: the caller has already checked the EtherType and
+     * that the header lies within len. Uses the same tuple as {@link #of(byte[], int)}.
+     */
+    public static int ipv4(byte[] f, int len) {
+        int ihl = (f[ETH_HLEN] & 0x0F) * 4;
+        int proto = f[ETH_HLEN + 9] & 0xFF;
+        int fragBits = ((f[ETH_HLEN + 6] & 0x3F) << 8) | (f[ETH_HLEN + 7] & 0xFF);
+        int ports = 0;
+        if ((proto == 6 || proto == 17) && fragBits == 0 && len >= ETH_HLEN + ihl + 4) {
+            ports = readInt(f, ETH_HLEN + ihl);
+        }
+        return of(readInt(f, ETH_HLEN + 12), readInt(f, ETH_HLEN + 16), proto, ports);
+    }
+
+    /** ports = srcPort << 16 | dstPort, or 0 when not applicable. */
+    public static int of(int src, int dst, int proto, int ports) {
+        int h = mix(src);
+        h = mix(h ^ dst);
+        h = mix(h ^ proto);
+        return mix(h ^ ports);
+    }
+
+    /** murmur3 fmix32. */
+    public static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int readInt(byte[] f, int off) {
+        return ((f[off] & 0xFF) << 24) | ((f[off + 1] & 0xFF) << 16)
+                | ((f[off + 2] & 0xFF) << 8) | (f[off + 3] & 0xFF);
+    }
+}
@@ -1,91 +1,203 @@
 package ports;
 
+import ARP.AdjacencyTable;
 import ARP.ArpEngine;
 import ARP.IfAddressBook;
+import ARP.UnresolvedQueues;
+import fib.Fib;
+import fib.FibEntry;
 import network.IpAddres;
-import org.pcap4j.packet.*;
+import org.pcap4j.packet.EthernetPacket;
+import org.pcap4j.packet.IpV4Packet;
 import org.pcap4j.packet.namednumber.EtherType;
 import org.pcap4j.util.MacAddress;
-import ports.TxSender;
-import rib.Rib;
-import routingTable.RouteEntry;
-
-import java.util.Optional;
+import ports.ring.Frame;
 
 public class Forwarder {
 
-    private final Rib rib;
+    private static final int ETH_HLEN = 14;
+    private static final int IP_TTL = ETH_HLEN + 8;
+    private static final int IP_CSUM = ETH_HLEN + 10;
+    private static final int ETH_MIN_LEN = 60;
+
+    private final Fib fib;
     private final ArpEngine arp;
     private final TxSender tx;
     private final IfAddressBook ifBook;
-
-    public Forwarder(Rib rib, ArpEngine arp, TxSender tx, IfAddressBook ifBook) {
-        this.rib = rib;
+    private final AdjacencyTable adjacencies;
+    private final UnresolvedQueues unresolved;
+    private final RouteCache routes;
+
+    public Forwarder(Fib fib, ArpEngine arp, TxSender tx, IfAddressBook ifBook,
+                     AdjacencyTable adjacencies, UnresolvedQueues unresolved, RouteCache routes) {
+        this.fib = fib;
+        this.routes = routes;
         this.arp = arp;
         this.tx = tx;
         this.ifBook = ifBook;
+        this.adjacencies = adjacencies;
+        this.unresolved = unresolved;
     }
 
     public void onIpv4Frame(EthernetPacket ethIn, String inIf){
+        byte[] raw = ethIn.getRawData();
+        if (forward(Frame.wrap(inIf, raw, raw.length))) return;
+        forwardParsed(ethIn, inIf);
+    }
+
+    /**
+     * Fast path on the captured bytes: TTL decrement with an RFC 1624 incremental
+     * checksum, in-place MAC rewrite, and the same buffer handed to TX by reference,
+     * so a pooled frame crosses RX -> TX without a copy or an allocation.
+     * The caller keeps its reference; whatever holds the frame longer retains it.
+     * Returns false when the frame needs the pcap4j path (options, VLAN, truncation).
+     */
+    public boolean forward(Frame fr) {
+        byte[] f = fr.data();
+        int len = fr.length();
+        String inIf = fr.ifName();
+        if (len < ETH_HLEN + 20) return false;
+        if ((f[12] & 0xFF) != 0x08 || f[13] != 0x00) return false;
+        if ((f[14] & 0xFF) != 0x45) return false;
+        int totalLen = ((f[16] & 0xFF) << 8) | (f[17] & 0xFF);
+        if (totalLen < 20 || ETH_HLEN + totalLen > len) return false;
+
+        int dst = ((f[30] & 0xFF) << 24) | ((f[31] & 0xFF) << 16) | ((f[32] & 0xFF) << 8) | (f[33] & 0xFF);
+        if (!IpAddres.isUnicast(dst)) return true;
+
+        IpAddres local = ifBook.getIp(inIf);
+        if (local != null && local.toInt() == dst) return true;
+
+        int ttl = f[22] & 0xFF;
+        if (ttl <= 1) {
+            // TODO ICMP Time Exceeded
+            return true;
+        }
+
+        long gen = routes.generation();
+        RouteCache.Slot hot = routes.get(dst, gen);
+        FibEntry re = hot != null ? hot.entry() : fib.lookup(dst);
+        if (re == null) {
+            // TODO: ICMP Destination Unreachable (Network/Host)
+            return true;
+        }
+        FibEntry.Path path = re.isMultipath() ? re.select(FlowHash.ipv4(f, len)) : re.select(0);
+        String outIf = path.outIf();
+        if (outIf == null || outIf.equals(inIf)) return true;
+        path.count();
+
+        decrementTtl(f);
+
+        int l3Target = path.nextHopInt() == 0 ? dst : path.nextHopInt();
+        AdjacencyTable.Adjacency adj = hot != null && hot.adjacency() != null
+                ? hot.adjacency() : adjacencies.get(outIf, l3Target);
+        if (hot == null || (hot.adjacency() == null && adj != null && !re.isMultipath())) {
+            routes.put(dst, gen, re, re.isMultipath() ? null : adj);
+        }
+        if (adj != null) {
+            adj.touch();
+            sendVia(adj, fr);
+            return true;
+        }
+        park(outIf, l3Target, fr);
+        return true;
+    }
+
+    /**
+     * No adjacency yet: parks fr on the bounded per-next-hop queue and starts resolution,
+     * which drains the queue through the new adjacency. Held-down next hops drop fr.
+     */
+    private void park(String outIf, int l3Target, Frame fr) {
+        if (arp.heldDown(outIf, l3Target)) return;   // TODO: ICMP Host Unreachable
+        if (!unresolved.enqueue(outIf, l3Target, fr)) return;
+
+        arp.resolve(outIf, IpAddres.fromInt(l3Target)).whenComplete((dstMac, err) -> {
+            MacAddress srcMac = ifBook.getMac(outIf);
+            if (dstMac == null || srcMac == null) {
+                unresolved.fail(outIf, l3Target);
+                return;
+            }
+            AdjacencyTable.Adjacency resolved = adjacencies.install(outIf, l3Target, srcMac, dstMac);
+            unresolved.drain(outIf, l3Target, parked -> sendVia(resolved, parked));
+        });
+    }
+
+    private void sendVia(AdjacencyTable.Adjacency adj, Frame fr) {
+        System.arraycopy(adj.header, 0, fr.data(), 0, AdjacencyTable.HEADER_LEN);
+        try {
+            tx.send(adj.outIf, fr);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** HC' = ~(~HC + ~m + m'), RFC 1624 eqn. 3, where m is the TTL/protocol word. */
+    static void decrementTtl(byte[] f) {
+        int oldWord = ((f[IP_TTL] & 0xFF) << 8) | (f[IP_TTL + 1] & 0xFF);
+        int newWord = oldWord - 0x0100;
+        int hc = ((f[IP_CSUM] & 0xFF) << 8) | (f[IP_CSUM + 1] & 0xFF);
+
+        int sum = (~hc & 0xFFFF) + (~oldWord & 0xFFFF) + newWord;
+        sum = (sum & 0xFFFF) + (sum >>> 16);
+        sum = (sum & 0xFFFF) + (sum >>> 16);
+        int csum = ~sum & 0xFFFF;
+
+        f[IP_TTL] = (byte) (newWord >>> 8);
+        f[IP_CSUM] = (byte) (csum >>> 8);
+        f[IP_CSUM + 1] = (byte) csum;
+    }
+
+    /**
+     * Frames {@link #forward(Frame)} declines (IP options, truncation): pcap4j rebuilds the
+     * IPv4 header with the lower TTL and a fresh checksum, and the result leaves through the
+     * same path selection, adjacency and parking as the fast path.
+     */
+    private void forwardParsed(EthernetPacket ethIn, String inIf) {
         if (ethIn.getHeader().getType() != EtherType.IPV4) return;
         if (!(ethIn.getPayload() instanceof IpV4Packet ip4)) return;
 
-        IpAddres dst = new IpAddres(ip4.getHeader().getDstAddr().getHostAddress());
-
-        if (!dst.isUnicast()) return;
+        byte[] d = ip4.getHeader().getDstAddr().getAddress();
+        int dst = ((d[0] & 0xFF) << 24) | ((d[1] & 0xFF) << 16) | ((d[2] & 0xFF) << 8) | (d[3] & 0xFF);
+        if (!IpAddres.isUnicast(dst)) return;
 
         IpAddres local = ifBook.getIp(inIf);
-        if (local != null && local.equals(dst)) return;
-        // 2)  TTL
+        if (local != null && local.toInt() == dst) return;
+
         int ttl = Byte.toUnsignedInt(ip4.getHeader().getTtl());
         if (ttl <= 1) {
             // TODO ICMP Time Exceeded
             return;
         }
 
-        Optional<RouteEntry> bestOpt = rib.lookup(dst);
-        if (bestOpt.isEmpty()) {
+        FibEntry re = fib.lookup(dst);
+        if (re == null) {
             // TODO: ICMP Destination Unreachable (Network/Host)
             return;
         }
-        RouteEntry re = bestOpt.get();
-        String outIf = re.outIf();
-        if (outIf == null) {
-            return;
-        }
 
-        if (outIf.equals(inIf)) {
+        IpV4Packet ip4Out = new IpV4Packet.Builder(ip4)
+                .ttl((byte) (ttl - 1))
+                .correctChecksumAtBuild(true)
+                .correctLengthAtBuild(true)
+                .build();
+        byte[] ip = ip4Out.getRawData();
+        int len = ETH_HLEN + ip.length;
+        byte[] f = new byte[Math.max(ETH_MIN_LEN, len)];
+        System.arraycopy(ip, 0, f, ETH_HLEN, ip.length);
+
+        FibEntry.Path path = re.isMultipath() ? re.select(FlowHash.ipv4(f, len)) : re.select(0);
+        String outIf = path.outIf();
+        if (outIf == null || outIf.equals(inIf)) return;
+        path.count();
+
+        int l3Target = path.nextHopInt() == 0 ? dst : path.nextHopInt();
+        Frame fr = Frame.wrap(inIf, f, f.length);
+        AdjacencyTable.Adjacency adj = adjacencies.get(outIf, l3Target);
+        if (adj != null) {
+            adj.touch();
+            sendVia(adj, fr);
             return;
         }
-
-        IpAddres l3Target = (re.nextHop() == null) ? dst : re.nextHop();
-
-        IpV4Packet.Builder ipb = new IpV4Packet.Builder(ip4);
-        ipb.ttl((byte) (ttl - 1))
-                .correctChecksumAtBuild(true)
-                .correctLengthAtBuild(true);
-        IpV4Packet ip4Out = ipb.build();
-
-        arp.resolve(outIf, l3Target).thenAccept(dstMac -> {
-            if (dstMac == null) {
-                return;
-            }
-            MacAddress srcMac = ifBook.getMac(outIf);
-            if (srcMac == null) return;
-
-            EthernetPacket outEth = new EthernetPacket.Builder()
-                    .dstAddr(dstMac)
-                    .srcAddr(srcMac)
-                    .type(EtherType.IPV4)
-                    .payloadBuilder(new SimpleBuilder(ip4Out))
-                    .paddingAtBuild(true)
-                    .build();
-
-            try {
-                tx.send(outIf, outEth);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        });
+        park(outIf, l3Target, fr);
     }
 }
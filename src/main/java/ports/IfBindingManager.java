@@ -6,23 +6,37 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 public class IfBindingManager {
 
     private static final Logger log = LoggerFactory.getLogger(IfBindingManager.class);
 
-    private static final int SNAPLEN = 65536;
-    private static final int TIMEOUT_MS = 10;
     private final LinkStatusWatcher watcher;
+    private final CaptureConfig capture;
 
     private final ConcurrentHashMap<String, Binding> bindings = new ConcurrentHashMap<>();
+    private final List<BindingListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Fired after an interface is bound (new handle/MAC) or unbound. */
+    public interface BindingListener {
+        void onBindingChange(String ifName, boolean bound);
+    }
 
     public IfBindingManager(LinkStatusWatcher watcher) {
+        this(watcher, CaptureConfig.defaults());
+    }
 
+    public IfBindingManager(LinkStatusWatcher watcher, CaptureConfig capture) {
         this.watcher = Objects.requireNonNull(watcher, "watcher");
+        this.capture = Objects.requireNonNull(capture, "capture");
     }
 
     private static final class Binding {
@@ -31,13 +45,15 @@ public class IfBindingManager {
         final PcapNetworkInterface nif;
         final MacAddress mac;
         final PcapHandle handle;
+        final int snaplen;
 
-        Binding(String ifName, String nicName, PcapNetworkInterface nif, MacAddress mac, PcapHandle handle) {
+        Binding(String ifName, String nicName, PcapNetworkInterface nif, MacAddress mac, PcapHandle handle, int snaplen) {
             this.ifName = ifName;
             this.nicName = nicName;
             this.nif = nif;
             this.mac = mac;
             this.handle = handle;
+            this.snaplen = snaplen;
         }
     }
 
@@ -76,13 +92,17 @@ public class IfBindingManager {
             throw new IllegalStateException("NIC has no MAC address: " + nicName);
         }
 
-        PcapHandle handle = nif.openLive(
-                SNAPLEN,
-                PcapNetworkInterface.PromiscuousMode.PROMISCUOUS,
-                TIMEOUT_MS
-        );
+        int snaplen = capture.snaplenFor(nicName);
+        PcapHandle.Builder hb = new PcapHandle.Builder(nicName)
+                .snaplen(snaplen)
+                .promiscuousMode(PcapNetworkInterface.PromiscuousMode.PROMISCUOUS)
+                .timeoutMillis(capture.timeoutMs())
+                .immediateMode(capture.immediate());
+        if (capture.bufferBytes() > 0) hb.bufferSize(capture.bufferBytes());
+        PcapHandle handle = hb.build();
 
         MacAddress mac = (MacAddress) nif.getLinkLayerAddresses().get(0);
+        // broad baseline until CaptureFilters narrows it to the enabled features
         String bpf =
                 "arp or " +
                         // RIP v2 multicast 224.0.0.9
@@ -93,8 +113,10 @@ public class IfBindingManager {
                         "(ip and ether dst " + mac + ")";
         handle.setFilter(bpf, BpfProgram.BpfCompileMode.OPTIMIZE);
 
-        bindings.put(ifName, new Binding(ifName, nicName, nif, mac, handle));
-        log.info("Bound {} -> {} (MAC={}, filter='{}')", ifName, nicName, mac, bpf);
+        bindings.put(ifName, new Binding(ifName, nicName, nif, mac, handle, snaplen));
+        log.info("Bound {} -> {} (MAC={}, snaplen={}, buffer={}, immediate={}, filter='{}')",
+                ifName, nicName, mac, snaplen, capture.bufferBytes(), capture.immediate(), bpf);
+        fire(ifName, true);
     }
 
     public synchronized void unbind(String ifName) {
@@ -111,6 +133,20 @@ public class IfBindingManager {
         } catch (Throwable ignored) {
         }
         log.info("Unbound {} (was {})", ifName, b.nicName);
+        fire(ifName, false);
+    }
+
+    public void addListener(BindingListener l) { listeners.add(l); }
+    public void removeListener(BindingListener l) { listeners.remove(l); }
+
+    private void fire(String ifName, boolean bound) {
+        for (BindingListener l : listeners) {
+            try {
+                l.onBindingChange(ifName, bound);
+            } catch (Throwable t) {
+                log.warn("binding listener err: {}", t.toString());
+            }
+        }
     }
 
     public PcapHandle getHandle(String ifName) {
@@ -128,15 +164,39 @@ public class IfBindingManager {
         return b == null ? null : b.nicName;
     }
 
-    public void setFilter(String ifName, String bpf){
+    public CaptureConfig captureConfig() { return capture; }
+
+    /** Kernel-side counters per bound interface (pcap_stats): received, dropped, droppedByIf. */
+    public Map<String, Map<String, Long>> captureStats() {
+        Map<String, Map<String, Long>> out = new TreeMap<>();
+        for (Binding b : bindings.values()) {
+            Map<String, Long> m = new LinkedHashMap<>();
+            m.put("snaplen", (long) b.snaplen);
+            try {
+                PcapStat st = b.handle.getStats();
+                m.put("received", st.getNumPacketsReceived());
+                m.put("dropped", st.getNumPacketsDropped());
+                m.put("droppedByIf", st.getNumPacketsDroppedByIf());
+            } catch (Exception e) {
+                log.debug("pcap_stats failed on {}: {}", b.ifName, e.toString());
+            }
+            out.put(b.ifName, m);
+        }
+        return out;
+    }
+
+    /** Returns false when the interface is not bound or the program did not compile. */
+    public boolean setFilter(String ifName, String bpf){
         try {
             Binding b = bindings.get(ifName);
             if (b == null) throw new IllegalStateException("Not bound: " + ifName);
             b.handle.setFilter(bpf, BpfProgram.BpfCompileMode.OPTIMIZE);
             log.info("Updated BPF for {} -> {}", ifName, bpf);
+            return true;
         }
         catch (Exception e  ) {
             e.printStackTrace();
+            return false;
         }
     }
 }
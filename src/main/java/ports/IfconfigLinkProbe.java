@@ -0,0 +1,30 @@
+package ports;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Fallback for hosts without sysfs (BSD/macOS): forks ifconfig once per NIC per probe. */
+public class IfconfigLinkProbe implements LinkProbe {
+
+    @Override
+    public Map<String, Boolean> probe() {
+        Map<String, Boolean> out = new LinkedHashMap<>();
+        try {
+            Process p = new ProcessBuilder("ifconfig", "-l").start();
+            try (var br = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                String line = br.readLine();
+                if (line != null) {
+                    for (String name : line.trim().split("\\s+")) {
+                        out.put(name, IfconfigLink.isCablePlugged(name));
+                    }
+                }
+            }
+        } catch (Exception ignored) {}
+        return out;
+    }
+
+    @Override
+    public String name() { return "ifconfig"; }
+}
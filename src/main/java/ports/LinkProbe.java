@@ -0,0 +1,29 @@
+package ports;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/** One look at every candidate NIC: name -> link usable (carrier up). */
+public interface LinkProbe {
+
+    Map<String, Boolean> probe();
+
+    String name();
+
+    /** sysfs on Linux, otherwise the ifconfig fallback. */
+    static LinkProbe detect() {
+        return Files.isDirectory(Path.of(SysfsLinkProbe.SYS_CLASS_NET))
+                ? new SysfsLinkProbe()
+                : new IfconfigLinkProbe();
+    }
+
+    static LinkProbe byName(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "auto" -> detect();
+            case "sysfs" -> new SysfsLinkProbe();
+            case "ifconfig" -> new IfconfigLinkProbe();
+            default -> throw new IllegalArgumentException("Unknown link probe: " + name + " (auto|sysfs|ifconfig)");
+        };
+    }
+}
@@ -9,20 +9,41 @@ import jakarta.annotation.PreDestroy;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 
+/**
+ * Tracks carrier state of the host NICs and fires {@link LinkListener} on changes.
+ * On Linux the state comes from sysfs, re-read as soon as rtnetlink reports a link
+ * change and on a short safety poll; elsewhere it falls back to polling ifconfig.
+ */
 @Component
 public class LinkStatusWatcher {
 
     private static final Logger log = LoggerFactory.getLogger(LinkStatusWatcher.class);
 
-    private static final long PERIOD_MS = 1000;
+    private static final long DEFAULT_PERIOD_MS = 1000;
 
-    private final ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor();
+    private final ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "link-watch"); t.setDaemon(true); return t;
+    });
     private final Map<String, Boolean> last = new ConcurrentHashMap<>();
     private final List<LinkListener> listeners = new CopyOnWriteArrayList<>();
 
+    private final LinkProbe probe;
+    private final long periodMs;
+    private final boolean useNetlink;
+    private volatile NetlinkLinkEvents netlink;
+
+    public LinkStatusWatcher() {
+        this(LinkProbe.detect(), DEFAULT_PERIOD_MS, true);
+    }
+
+    /** useNetlink only takes effect with the sysfs probe; periodMs is the safety poll. */
+    public LinkStatusWatcher(LinkProbe probe, long periodMs, boolean useNetlink) {
+        this.probe = Objects.requireNonNull(probe);
+        this.periodMs = periodMs;
+        this.useNetlink = useNetlink && probe instanceof SysfsLinkProbe;
+    }
+
 
     public Set<String> snapshotActiveIfaces() {
         return last.entrySet().stream()
@@ -66,16 +87,47 @@ public class LinkStatusWatcher {
 
     public void start() {
         // перший прогін одразу
-        ses.scheduleAtFixedRate(this::pollOnceSafe, 0, PERIOD_MS, TimeUnit.MILLISECONDS);
-        log.info("LinkStatusWatcher started ({} ms period).", PERIOD_MS);
+        ses.scheduleAtFixedRate(this::pollOnceSafe, 0, periodMs, TimeUnit.MILLISECONDS);
+        if (useNetlink) startNetlink();
+        log.info("LinkStatusWatcher started (probe={}, {} ms period, netlink={}).",
+                probe.name(), periodMs, netlink != null);
     }
 
     @PreDestroy
     public void stop() {
+        NetlinkLinkEvents nl = netlink;
+        netlink = null;
+        if (nl != null) nl.stop();   // the link-netlink thread closes the socket
         ses.shutdownNow();
         log.info("LinkStatusWatcher stopped.");
     }
 
+    /** Wakes the poller on every rtnetlink link message instead of waiting for the next period. */
+    private void startNetlink() {
+        NetlinkLinkEvents nl = NetlinkLinkEvents.open();
+        if (nl == null) {
+            log.info("rtnetlink not available, relying on the {} ms poll", periodMs);
+            return;
+        }
+        netlink = nl;
+        Thread t = new Thread(() -> {
+            byte[] buf = new byte[8192];
+            int r;
+            while ((r = nl.await(buf)) != NetlinkLinkEvents.CLOSED) {
+                if (r == NetlinkLinkEvents.EVENT) {
+                    try {
+                        ses.execute(this::pollOnceSafe);
+                    } catch (RejectedExecutionException e) {
+                        break;
+                    }
+                }
+            }
+            nl.close();
+        }, "link-netlink");
+        t.setDaemon(true);
+        t.start();
+    }
+
     private void pollOnceSafe() {
         try {
             pollOnce();
@@ -85,9 +137,10 @@ public class LinkStatusWatcher {
     }
 
     private void pollOnce() {
-        Set<String> current = listCandidates();
-        for (String ifn : current) {
-            boolean plugged = IfconfigLink.isCablePlugged(ifn);
+        Map<String, Boolean> current = probe.probe();
+        for (Map.Entry<String, Boolean> cur : current.entrySet()) {
+            String ifn = cur.getKey();
+            boolean plugged = cur.getValue();
             Boolean prev = last.put(ifn, plugged);
             if (prev == null) {
                 fire(new LinkEvent(ifn, plugged, Instant.now()));
@@ -98,7 +151,7 @@ public class LinkStatusWatcher {
         Iterator<Map.Entry<String, Boolean>> it = last.entrySet().iterator();
         while (it.hasNext()) {
             Map.Entry<String, Boolean> e = it.next();
-            if (!current.contains(e.getKey())) {
+            if (!current.containsKey(e.getKey())) {
                 fire(new LinkEvent(e.getKey(), false, Instant.now()));
                 it.remove();
             }
@@ -115,37 +168,4 @@ public class LinkStatusWatcher {
             }
         }
     }
-
-    private static Set<String> listCandidates() {
-        Set<String> out = new java.util.LinkedHashSet<>();
-        try {
-            Process p = new ProcessBuilder("ifconfig", "-l").start();
-            try (var br = new java.io.BufferedReader(new java.io.InputStreamReader(p.getInputStream()))) {
-                String line = br.readLine();
-                if (line != null) {
-                    for (String name : line.trim().split("\\s+")) {
-                        if (isEnGreaterThan6(name)) {
-                            out.add(name);
-                        }
-                    }
-                }
-            }
-        } catch (Exception ignored) {}
-        return out;
-    }
-
-    //NOT USE!!!!!!
-    private static boolean isEnGreaterThan6(String name) {
-        /*if (!name.startsWith("en")) return false;
-        try {
-            int num = Integer.parseInt(name.substring(2));
-            return num > 6;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-        */
-         return true;
-    }
-
-
 }
@@ -0,0 +1,112 @@
+package ports;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Minimal rtnetlink subscriber (RTMGRP_LINK) through JNA, which pcap4j already ships.
+ * Messages are not decoded: any link notification just wakes the caller, which then
+ * re-reads sysfs. That keeps the binding to four libc calls.
+ */
+final class NetlinkLinkEvents implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(NetlinkLinkEvents.class);
+
+    private static final int AF_NETLINK = 16;
+    private static final int SOCK_RAW = 3;
+    private static final int NETLINK_ROUTE = 0;
+    private static final int RTMGRP_LINK = 1;
+    private static final int SOCKADDR_NL_LEN = 12;
+    private static final int SOL_SOCKET = 1;
+    private static final int SO_RCVTIMEO = 20;
+    private static final int EAGAIN = 11;
+    private static final int ENOBUFS = 105;
+
+    /** Results of {@link #await}. */
+    static final int EVENT = 1, TIMEOUT = 0, CLOSED = -1;
+
+    interface LibC extends Library {
+        int socket(int domain, int type, int protocol);
+        int bind(int fd, byte[] addr, int addrLen);
+        int setsockopt(int fd, int level, int name, byte[] value, int len);
+        NativeLong recv(int fd, byte[] buf, NativeLong len, int flags);
+        int close(int fd);
+    }
+
+    private final LibC libc;
+    private final int fd;
+    private volatile boolean closed;
+    private boolean released;   // reader thread only
+
+    private NetlinkLinkEvents(LibC libc, int fd) {
+        this.libc = libc;
+        this.fd = fd;
+    }
+
+    /** Opens the subscription, or returns null when not on Linux or the socket is refused. */
+    static NetlinkLinkEvents open() {
+        if (!Platform.isLinux()) return null;
+        try {
+            LibC libc = Native.load("c", LibC.class);
+            int fd = libc.socket(AF_NETLINK, SOCK_RAW, NETLINK_ROUTE);
+            if (fd < 0) return null;
+            byte[] sa = ByteBuffer.allocate(SOCKADDR_NL_LEN).order(ByteOrder.nativeOrder())
+                    .putShort((short) AF_NETLINK).putShort((short) 0)
+                    .putInt(0).putInt(RTMGRP_LINK)
+                    .array();
+            // struct timeval {1 s, 0 us}: recv wakes up periodically so stop() is noticed
+            ByteBuffer tvb = ByteBuffer.allocate(2 * Native.LONG_SIZE).order(ByteOrder.nativeOrder());
+            if (Native.LONG_SIZE == 8) tvb.putLong(1); else tvb.putInt(1);
+            byte[] tv = tvb.array();
+            if (libc.bind(fd, sa, sa.length) != 0
+                    || libc.setsockopt(fd, SOL_SOCKET, SO_RCVTIMEO, tv, tv.length) != 0) {
+                libc.close(fd);
+                return null;
+            }
+            return new NetlinkLinkEvents(libc, fd);
+        } catch (Throwable t) {
+            log.debug("rtnetlink unavailable: {}", t.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Waits up to a second for link notifications. A receive-buffer overflow (ENOBUFS)
+     * also counts as an event: messages were lost, so the caller must re-read anyway.
+     */
+    int await(byte[] buf) {
+        if (closed) return CLOSED;
+        long n = libc.recv(fd, buf, new NativeLong(buf.length), 0).longValue();
+        if (closed) return CLOSED;
+        if (n > 0) return EVENT;
+        int err = Native.getLastError();
+        if (err == EAGAIN) return TIMEOUT;
+        if (err == ENOBUFS) return EVENT;
+        return CLOSED;
+    }
+
+    /**
+     * Asks the reader to finish; it sees the flag within a second and closes the socket
+     * itself. Closing the fd here could race a recv() still in progress on it, and the
+     * number may already belong to another file by the time that recv() runs.
+     */
+    void stop() {
+        closed = true;
+    }
+
+    /** Releases the socket. Only the thread that calls {@link #await} may call this. */
+    @Override
+    public void close() {
+        closed = true;
+        if (released) return;
+        released = true;
+        libc.close(fd);
+    }
+}
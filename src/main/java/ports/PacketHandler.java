@@ -1,8 +1,20 @@
 package ports;
 
 import org.pcap4j.packet.EthernetPacket;
+import ports.ring.Frame;
 
 @FunctionalInterface
 public interface PacketHandler {
     void onPacket(EthernetPacket frame, String ifName);
+
+    /**
+     * Raw entry used by the RX pipeline. The frame is only borrowed for the call;
+     * retain it to keep it longer. Default decodes with pcap4j.
+     */
+    default void onFrame(Frame frame) {
+        try {
+            onPacket(EthernetPacket.newPacket(frame.data(), 0, frame.length()), frame.ifName());
+        } catch (Exception ignored) {
+        }
+    }
 }
@@ -1,30 +1,40 @@
 package ports;
 
 import org.pcap4j.core.NotOpenException;
-import org.pcap4j.core.PacketListener;
 import org.pcap4j.core.PcapHandle;
-import org.pcap4j.packet.EthernetPacket;
-import org.pcap4j.packet.Packet;
+import org.pcap4j.core.RawPacketListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ports.ring.Frame;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 public class PacketRxLoop {
 
     private static final Logger log = LoggerFactory.getLogger(PacketRxLoop.class);
 
     private final IfBindingManager binding;
+    private final RxPipeline pipeline;
     private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
         Thread t = new Thread(r, "rx-loop"); t.setDaemon(true); return t;
     });
 
     private final Map<String, Future<?>> loops = new ConcurrentHashMap<>();
+    private final Map<String, LoopStats> stats = new ConcurrentHashMap<>();
 
-    public PacketRxLoop(IfBindingManager binding) {
+    private static final class LoopStats {
+        final LongAdder dispatches = new LongAdder();
+        final LongAdder frames = new LongAdder();
+    }
+
+    public PacketRxLoop(IfBindingManager binding, RxPipeline pipeline) {
         this.binding = Objects.requireNonNull(binding);
+        this.pipeline = Objects.requireNonNull(pipeline);
     }
 
     public synchronized void start(String ifName, PacketHandler handler) {
@@ -33,20 +43,31 @@ public class PacketRxLoop {
         PcapHandle handle = binding.getHandle(ifName);
         if (handle == null) throw new IllegalStateException("No pcap handle for " + ifName);
 
-        PacketListener listener = pkt -> {
-            if (pkt instanceof EthernetPacket eth) {
-                handler.onPacket(eth, ifName);
-            } else {
-                try {
-                    Packet top = pkt.get(EthernetPacket.class);
-                    if (top != null) handler.onPacket((EthernetPacket) top, ifName);
-                } catch (Exception ignored) {}
+        // raw bytes only: pcap4j never decodes a frame the handler does not ask for
+        RawPacketListener inline = raw -> {
+            try {
+                handler.onFrame(Frame.wrap(ifName, raw, raw.length));
+            } catch (Throwable t) {
+                log.debug("RX handler error on {}: {}", ifName, t.toString());
             }
         };
 
+        RawPacketListener toPipeline = raw -> pipeline.submit(ifName, raw);
+        if (pipeline.isEnabled()) pipeline.register(ifName, handler);
+
+        RawPacketListener listener = pipeline.isEnabled() ? toPipeline : inline;
+        LoopStats stats = new LoopStats();
+        this.stats.put(ifName, stats);
+        int batch = binding.captureConfig().dispatchBatch();
+
         Future<?> fut = pool.submit(() -> {
             try {
-                handle.loop(-1, listener);
+                // breakLoop() makes the current or next dispatch throw InterruptedException
+                while (true) {
+                    int n = handle.dispatch(batch, listener);
+                    stats.dispatches.increment();
+                    stats.frames.add(n);
+                }
             } catch (InterruptedException ie) {
                 Thread.currentThread().interrupt();
             } catch (NotOpenException noe) {
@@ -55,6 +76,8 @@ public class PacketRxLoop {
                 log.warn("RX loop error on {}: {}", ifName, t.toString());
             } finally {
                 loops.remove(ifName);
+                this.stats.remove(ifName, stats);
+                pipeline.unregister(ifName);
                 log.info("RX loop stopped: {}", ifName);
             }
         });
@@ -63,6 +86,18 @@ public class PacketRxLoop {
         log.info("RX loop started: {}", ifName);
     }
 
+    /** Per running loop: dispatch calls and frames delivered (frames / dispatches = mean batch). */
+    public Map<String, Map<String, Long>> stats() {
+        Map<String, Map<String, Long>> out = new TreeMap<>();
+        stats.forEach((ifName, st) -> {
+            Map<String, Long> m = new LinkedHashMap<>();
+            m.put("dispatches", st.dispatches.sum());
+            m.put("frames", st.frames.sum());
+            out.put(ifName, m);
+        });
+        return out;
+    }
+
     public synchronized void stop(String ifName) {
         Future<?> fut = loops.get(ifName);
         PcapHandle handle = binding.getHandle(ifName);
@@ -0,0 +1,92 @@
+package ports;
+
+import ARP.AdjacencyTable;
+import fib.FibEntry;
+import rib.RibListener;
+import rip.RouteChangeEvent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Direct-mapped destination cache in front of the FIB: one slot per hashed IPv4
+ * destination holding the resolved entry and, for single-path routes, the adjacency,
+ * so a hot destination costs one array read. Slots are immutable and stamped with the
+ * generation they were filled under; a route change or a dropped adjacency bumps the
+ * generation, which retires every slot at once without touching the array.
+ * Subscribe through {@code FibSync.addListener} so the FIB is already patched when
+ * the generation moves.
+ */
+public class RouteCache implements RibListener {
+
+    /** A cached resolution; adjacency is null for multipath or still unresolved routes. */
+    public record Slot(int dst, long gen, FibEntry entry, AdjacencyTable.Adjacency adjacency) {}
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Slot[].class);
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    public RouteCache(int size) {
+        int cap = 64;
+        while (cap < size && cap < (1 << 24)) cap <<= 1;
+        this.slots = new Slot[cap];
+        this.mask = cap - 1;
+    }
+
+    /** Read before resolving a miss, and pass to {@link #put}, so a racing change wins. */
+    public long generation() { return generation.get(); }
+
+    /** The slot for dst when it is current, else null; counts the hit or miss. */
+    public Slot get(int dst, long gen) {
+        Slot s = (Slot) SLOTS.getAcquire(slots, index(dst));
+        if (s != null && s.dst == dst && s.gen == gen) {
+            hits.increment();
+            return s;
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(int dst, long gen, FibEntry entry, AdjacencyTable.Adjacency adjacency) {
+        int i = index(dst);
+        Slot prev = (Slot) SLOTS.getAcquire(slots, i);
+        if (prev != null && prev.dst != dst && prev.gen == gen) collisions.increment();
+        SLOTS.setRelease(slots, i, new Slot(dst, gen, entry, adjacency));
+    }
+
+    /** Retires every cached slot. */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void onRouteChange(RouteChangeEvent evt) {
+        invalidate();
+    }
+
+    public Map<String, Long> stats() {
+        long h = hits.sum(), m = misses.sum();
+        Map<String, Long> out = new LinkedHashMap<>();
+        out.put("slots", (long) slots.length);
+        out.put("generation", generation.get());
+        out.put("hits", h);
+        out.put("misses", m);
+        out.put("hitRatePct", h + m == 0 ? 0 : h * 100 / (h + m));
+        out.put("collisions", collisions.sum());
+        return out;
+    }
+
+    private int index(int dst) {
+        int h = dst * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
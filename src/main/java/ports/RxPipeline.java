@@ -0,0 +1,151 @@
+package ports;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ports.ring.Frame;
+import ports.ring.FramePool;
+import ports.ring.FrameRef;
+import ports.ring.MpscRing;
+import ports.ring.Ring;
+import ports.ring.WaitStrategy;
+
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * RX pipeline mode: capture threads only copy the raw frame into a pooled {@link Frame}
+ * and publish it on the ring of the worker picked by {@link FlowHash}; N worker threads
+ * run demux + forwarding. One flow always lands on the same worker, so per-flow order is
+ * kept while ports scale across cores. A full ring or an empty pool drops the frame;
+ * capture never blocks.
+ */
+public class RxPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(RxPipeline.class);
+
+    private static final int DRAIN_BATCH = 64;
+
+    private final class Worker {
+        final Ring<FrameRef> ring;
+        final LongAdder processed = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final Thread thread;
+
+        Worker(int i, int depth) {
+            this.ring = new MpscRing<>(depth, FrameRef::new);
+            this.thread = new Thread(this::run, "rx-worker-" + i);
+            this.thread.setDaemon(true);
+        }
+
+        void run() {
+            int idle = 0;
+            while (running) {
+                int n = ring.drain(this::handle, DRAIN_BATCH);
+                if (n == 0) {
+                    wait.idle(idle++);
+                } else {
+                    processed.add(n);
+                    idle = 0;
+                }
+            }
+        }
+
+        void handle(FrameRef ref) {
+            Frame fr = ref.take();
+            try {
+                PacketHandler handler = handlers.get(fr.ifName());
+                if (handler != null) handler.onFrame(fr);
+            } catch (Throwable t) {
+                log.debug("RX worker error on {}: {}", fr.ifName(), t.toString());
+            } finally {
+                fr.release();
+            }
+        }
+
+        /** Returns frames left in the ring to the pool once the worker has exited; callers take turns. */
+        synchronized void discardAfterStop() {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            dropped.add(ring.drain(ref -> ref.take().release(), Integer.MAX_VALUE));
+        }
+    }
+
+    private final Worker[] workers;
+    private final WaitStrategy wait;
+    private final FramePool pool;
+    private final Map<String, PacketHandler> handlers = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    /** workers == 0 disables the pipeline; frames are then handled inline on the capture thread. */
+    public RxPipeline(int workers, int ringSize, FramePool pool, WaitStrategy wait) {
+        if (workers < 0) throw new IllegalArgumentException("workers >= 0");
+        this.wait = Objects.requireNonNull(wait);
+        this.pool = Objects.requireNonNull(pool);
+        this.workers = new Worker[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = new Worker(i, ringSize);
+            this.workers[i].thread.start();
+        }
+        if (workers > 0) log.info("RX pipeline: {} workers, ring {}, wait={}", workers, ringSize, wait);
+    }
+
+    public boolean isEnabled() { return workers.length > 0; }
+
+    public void register(String ifName, PacketHandler handler) { handlers.put(ifName, handler); }
+    public void unregister(String ifName) { handlers.remove(ifName); }
+
+    /** Called on the capture thread. */
+    public void submit(String ifName, byte[] frame) {
+        Worker w = workers[Math.floorMod(FlowHash.of(frame, frame.length), workers.length)];
+        if (!running) {
+            w.dropped.increment();
+            return;
+        }
+        Frame fr = pool.acquire();
+        if (fr == null) {
+            w.dropped.increment();
+            return;
+        }
+        long seq = w.ring.claim();
+        if (seq < 0) {
+            fr.release();
+            w.dropped.increment();
+            return;
+        }
+        fr.set(ifName, frame, frame.length);
+        w.ring.slot(seq).set(fr);
+        w.ring.publish(seq);
+        if (wait == WaitStrategy.PARK) LockSupport.unpark(w.thread);
+
+        // publish before reading running; pairs with shutdown(), which flips it before draining
+        VarHandle.fullFence();
+        if (!running) w.discardAfterStop();
+    }
+
+    public List<Map<String, Long>> stats() {
+        List<Map<String, Long>> out = new ArrayList<>(workers.length);
+        for (Worker w : workers) {
+            Map<String, Long> m = new LinkedHashMap<>();
+            m.put("queued", (long) w.ring.size());
+            m.put("capacity", (long) w.ring.capacity());
+            m.put("processed", w.processed.sum());
+            m.put("dropped", w.dropped.sum());
+            out.add(m);
+        }
+        return out;
+    }
+
+    /** Stops the workers, waits for them to exit and returns frames still queued to the pool. */
+    public void shutdown() {
+        running = false;
+        for (Worker w : workers) LockSupport.unpark(w.thread);
+        for (Worker w : workers) w.discardAfterStop();
+    }
+}
@@ -0,0 +1,61 @@
+package ports;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Linux link state straight from sysfs: a few small file reads per NIC, no process
+ * spawns. Only Ethernet devices (type 1) are candidates. A link counts as plugged when
+ * operstate is "up", or "unknown" with carrier 1 (drivers that do not report operstate).
+ */
+public class SysfsLinkProbe implements LinkProbe {
+
+    static final String SYS_CLASS_NET = "/sys/class/net";
+    private static final String ARPHRD_ETHER = "1";
+
+    private final Path root;
+
+    public SysfsLinkProbe() {
+        this(Path.of(SYS_CLASS_NET));
+    }
+
+    SysfsLinkProbe(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public Map<String, Boolean> probe() {
+        Map<String, Boolean> out = new LinkedHashMap<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(root)) {
+            for (Path dev : ds) {
+                if (!ARPHRD_ETHER.equals(read(dev.resolve("type")))) continue;
+                out.put(dev.getFileName().toString(), isPlugged(dev));
+            }
+        } catch (IOException ignored) {
+        }
+        return out;
+    }
+
+    @Override
+    public String name() { return "sysfs"; }
+
+    private static boolean isPlugged(Path dev) {
+        String oper = read(dev.resolve("operstate"));
+        if ("up".equals(oper)) return true;
+        if (!"unknown".equals(oper)) return false;
+        return "1".equals(read(dev.resolve("carrier")));
+    }
+
+    /** Trimmed file content, or null when unreadable (carrier is EINVAL while admin-down). */
+    private static String read(Path p) {
+        try {
+            return Files.readString(p).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -1,24 +1,242 @@
 package ports;
 
-import org.pcap4j.core.NotOpenException;
 import org.pcap4j.core.PcapHandle;
 import org.pcap4j.packet.EthernetPacket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ports.ring.Frame;
+import ports.ring.FramePool;
+import ports.ring.FrameRef;
+import ports.ring.MpscRing;
+import ports.ring.Ring;
+import ports.ring.WaitStrategy;
 
-import java.util.Objects;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
-public class TxSender {
+/**
+ * Sends frames out of bound interfaces. With a non-zero queue depth every bound interface
+ * gets its own "tx-&lt;ifName&gt;" thread draining a ring in batches, so callers (RX workers,
+ * ARP futures, RIP and DHCP timers) only publish the frame and return instead of
+ * contending on the native handle. {@link #send(String, Frame)} hands over a pooled frame
+ * by reference; the byte[]/pcap4j entry points copy into one. A full ring either drops the frame or, with the
+ * {@link OverflowPolicy#BLOCK} policy, holds the caller up to a timeout first.
+ */
+public class TxSender implements IfBindingManager.BindingListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TxSender.class);
+
+    public enum OverflowPolicy {
+        DROP, BLOCK;
+
+        public static OverflowPolicy parse(String s) {
+            return valueOf(s.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final class TxQueue {
+        final String ifName;
+        final Ring<FrameRef> ring;
+        final Thread thread;
+        final LongAdder sent = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder batches = new LongAdder();
+        volatile boolean running = true;
+        private PcapHandle handle;   // drain thread only
+        private final Consumer<FrameRef> send = ref -> transmit(handle, ref.take());   // built once, not per drain
+
+        TxQueue(String ifName) {
+            this.ifName = ifName;
+            this.ring = new MpscRing<>(queueDepth, FrameRef::new);
+            this.thread = new Thread(this::run, "tx-" + ifName);
+            this.thread.setDaemon(true);
+        }
+
+        /** Takes its own reference on fr; the caller keeps (and releases) theirs. */
+        boolean offer(Frame fr) {
+            long seq = ring.claim();
+            if (seq < 0 && policy == OverflowPolicy.BLOCK) {
+                long deadline = System.nanoTime() + blockNanos;
+                int idle = 0;
+                while (seq < 0 && running && System.nanoTime() < deadline) {
+                    WaitStrategy.YIELD.idle(idle++);
+                    seq = ring.claim();
+                }
+            }
+            if (seq < 0) {
+                dropped.increment();
+                return false;
+            }
+            ring.slot(seq).set(fr.retain());
+            ring.publish(seq);
+            if (wait == WaitStrategy.PARK) LockSupport.unpark(thread);
+
+            // publish before reading running; pairs with stop(), which flips it before draining
+            VarHandle.fullFence();
+            if (!running) {
+                discardAfterStop();
+                return false;
+            }
+            return true;
+        }
+
+        /** Stops the drain thread, waits for it to exit and releases what is still queued. */
+        void stop() {
+            running = false;
+            LockSupport.unpark(thread);
+            discardAfterStop();
+        }
+
+        /** Frames still queued once the drain thread has exited have nowhere to go; callers take turns. */
+        synchronized void discardAfterStop() {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            dropped.add(ring.drain(ref -> ref.take().release(), Integer.MAX_VALUE));
+        }
+
+        void run() {
+            int idle = 0;
+            while (running) {
+                handle = binding.getHandle(ifName);
+                int n = ring.drain(send, batch);
+                if (n == 0) {
+                    wait.idle(idle++);
+                } else {
+                    batches.increment();
+                    idle = 0;
+                }
+            }
+        }
+
+        void transmit(PcapHandle h, Frame fr) {
+            try {
+                if (h == null) {
+                    dropped.increment();
+                    return;
+                }
+                h.sendPacket(fr.data(), fr.length());
+                sent.increment();
+            } catch (Exception e) {
+                errors.increment();
+                log.debug("TX error on {}: {}", ifName, e.toString());
+            } finally {
+                fr.release();
+            }
+        }
+
+        Map<String, Long> stats() {
+            Map<String, Long> m = new LinkedHashMap<>();
+            m.put("queued", (long) ring.size());
+            m.put("capacity", (long) ring.capacity());
+            m.put("sent", sent.sum());
+            m.put("batches", batches.sum());
+            m.put("dropped", dropped.sum());
+            m.put("errors", errors.sum());
+            return m;
+        }
+    }
 
     private final IfBindingManager binding;
+    private final int queueDepth;
+    private final FramePool pool;
+    private final int batch;
+    private final OverflowPolicy policy;
+    private final long blockNanos;
+    private final WaitStrategy wait;
+    private final Map<String, TxQueue> queues = new ConcurrentHashMap<>();
 
     public TxSender(IfBindingManager binding) {
+        this(binding, 0, null, 0, OverflowPolicy.DROP, 0, WaitStrategy.PARK);
+    }
+
+    /**
+     * queueDepth == 0 keeps sends synchronous on the calling thread. A queued sender
+     * must also be registered as a binding listener, which creates and stops its queues.
+     */
+    public TxSender(IfBindingManager binding, int queueDepth, FramePool pool, int batch,
+                    OverflowPolicy policy, long blockTimeoutMs, WaitStrategy wait) {
         this.binding = Objects.requireNonNull(binding);
+        this.queueDepth = queueDepth;
+        this.pool = queueDepth > 0 ? Objects.requireNonNull(pool) : pool;
+        this.batch = Math.max(1, batch);
+        this.policy = Objects.requireNonNull(policy);
+        this.blockNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.wait = Objects.requireNonNull(wait);
+        if (queueDepth > 0) {
+            log.info("TX queues: depth {}, batch {}, policy={}, wait={}", queueDepth, this.batch, policy, wait);
+        }
     }
 
+    public boolean isAsync() { return queueDepth > 0; }
 
     public void send(String ifName, EthernetPacket frame) throws Exception {
+        if (isAsync()) {
+            byte[] raw = frame.getRawData();
+            sendRaw(ifName, raw, raw.length);
+            return;
+        }
+        handleFor(ifName).sendPacket(frame);
+    }
+
+    public void sendRaw(String ifName, byte[] frame, int len) throws Exception {
+        if (isAsync()) {
+            TxQueue q = queueFor(ifName);
+            Frame fr = pool.copyOf(ifName, frame, len);
+            try {
+                q.offer(fr);
+            } finally {
+                fr.release();
+            }
+            return;
+        }
+        handleFor(ifName).sendPacket(frame, len);
+    }
+
+    /** Zero-copy send: the queue retains fr until it is on the wire; the caller still releases its own reference. */
+    public void send(String ifName, Frame fr) throws Exception {
+        if (isAsync()) {
+            queueFor(ifName).offer(fr);
+            return;
+        }
+        handleFor(ifName).sendPacket(fr.data(), fr.length());
+    }
+
+    @Override
+    public void onBindingChange(String ifName, boolean bound) {
+        TxQueue old = queues.remove(ifName);
+        if (old != null) old.stop();
+        if (bound) {
+            TxQueue q = new TxQueue(ifName);
+            queues.put(ifName, q);
+            q.thread.start();
+        }
+    }
+
+    public Map<String, Map<String, Long>> stats() {
+        Map<String, Map<String, Long>> out = new TreeMap<>();
+        queues.forEach((ifName, q) -> out.put(ifName, q.stats()));
+        return out;
+    }
+
+    private TxQueue queueFor(String ifName) {
+        TxQueue q = queues.get(ifName);
+        if (q == null) throw new IllegalStateException("No TX queue for " + ifName);
+        return q;
+    }
+
+    private PcapHandle handleFor(String ifName) {
         PcapHandle h = binding.getHandle(ifName);
         if (h == null) throw new IllegalStateException("No pcap handle for " + ifName);
-        h.sendPacket(frame);
-        System.out.println("sended");
+        return h;
     }
 }
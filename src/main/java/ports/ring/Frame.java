@@ -0,0 +1,78 @@
+package ports.ring;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Reference-counted frame buffer. Pooled frames come from {@link FramePool#acquire()}
+ * with one reference; every stage that keeps the frame past its own call (a ring slot,
+ * a parked ARP queue) takes a {@link #retain()} and gives it back with {@link #release()}.
+ * The last release returns the buffer to its pool. Unpooled frames just get collected.
+ */
+public final class Frame {
+
+    private static final VarHandle REFS;
+    static {
+        try {
+            REFS = MethodHandles.lookup().findVarHandle(Frame.class, "refs", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final FramePool pool;   // null for unpooled frames
+    private byte[] data;
+    private int length;
+    private String ifName;
+    private volatile int refs;
+
+    Frame(FramePool pool, int capacity) {
+        this.pool = pool;
+        this.data = new byte[capacity];
+    }
+
+    private Frame(String ifName, byte[] data, int len) {
+        this.pool = null;
+        this.data = data;
+        this.length = len;
+        this.ifName = ifName;
+        this.refs = 1;
+    }
+
+    /** Wraps an array the caller owns (no copy, no pool); used off the pooled path. */
+    public static Frame wrap(String ifName, byte[] data, int len) {
+        return new Frame(ifName, data, len);
+    }
+
+    /** Copies len bytes of src in; grows the buffer only for the rare oversize frame. */
+    public void set(String ifName, byte[] src, int len) {
+        if (len > data.length) data = new byte[len];
+        System.arraycopy(src, 0, data, 0, len);
+        this.length = len;
+        this.ifName = ifName;
+    }
+
+    public byte[] data() { return data; }
+    public int length() { return length; }
+    public String ifName() { return ifName; }
+
+    public Frame retain() {
+        REFS.getAndAdd(this, 1);
+        return this;
+    }
+
+    public void release() {
+        int left = (int) REFS.getAndAdd(this, -1) - 1;
+        if (left == 0) {
+            if (pool != null) pool.recycle(this);
+        } else if (left < 0) {
+            throw new IllegalStateException("frame released too often");
+        }
+    }
+
+    void reset() {
+        length = 0;
+        ifName = null;
+        refs = 1;
+    }
+}
@@ -0,0 +1,63 @@
+package ports.ring;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed set of {@link Frame} buffers allocated at startup and recycled forever, so the
+ * forwarding path does not allocate per packet once frames are on RX workers (inline
+ * capture wraps pcap4j's per-frame array instead). When every buffer is in flight
+ * {@link #acquire()} returns null and the caller drops (or, off the fast path, falls back
+ * to a heap copy).
+ */
+public final class FramePool {
+
+    private final ArrayBlockingQueue<Frame> free;
+    private final int frameSize;
+    private final LongAdder exhausted = new LongAdder();
+
+    public FramePool(int frames, int frameSize) {
+        if (frames < 1) throw new IllegalArgumentException("frames >= 1");
+        this.free = new ArrayBlockingQueue<>(frames);
+        this.frameSize = frameSize;
+        for (int i = 0; i < frames; i++) free.offer(new Frame(this, frameSize));
+    }
+
+    /** A frame holding one reference, or null when the pool is empty. */
+    public Frame acquire() {
+        Frame f = free.poll();
+        if (f == null) {
+            exhausted.increment();
+            return null;
+        }
+        f.reset();
+        return f;
+    }
+
+    /** Pooled copy of src, or an unpooled heap copy when the pool is empty. */
+    public Frame copyOf(String ifName, byte[] src, int len) {
+        Frame f = acquire();
+        if (f == null) return Frame.wrap(ifName, Arrays.copyOf(src, len), len);
+        f.set(ifName, src, len);
+        return f;
+    }
+
+    void recycle(Frame f) {
+        free.offer(f);
+    }
+
+    public int frameSize() { return frameSize; }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        int cap = free.size() + free.remainingCapacity();
+        m.put("capacity", (long) cap);
+        m.put("free", (long) free.size());
+        m.put("inUse", (long) (cap - free.size()));
+        m.put("exhausted", exhausted.sum());
+        return m;
+    }
+}
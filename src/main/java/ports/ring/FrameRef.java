@@ -0,0 +1,16 @@
+package ports.ring;
+
+/** Ring slot that carries a reference to a pooled {@link Frame} instead of a copy. */
+public final class FrameRef {
+
+    private Frame frame;
+
+    public void set(Frame f) { this.frame = f; }
+
+    /** Returns the frame and clears the slot; the caller now owns that reference. */
+    public Frame take() {
+        Frame f = frame;
+        frame = null;
+        return f;
+    }
+}
@@ -0,0 +1,77 @@
+package ports.ring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Multi-producer / single-consumer ring (bounded Vyukov queue). Each slot carries a
+ * sequence number: seq == pos means free for the producer claiming pos, seq == pos + 1
+ * means published. Producers race only on one CAS of the tail.
+ */
+public final class MpscRing<T> implements Ring<T> {
+
+    private final Object[] slots;
+    private final AtomicLongArray seqs;
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;   // written by the consumer only
+
+    public MpscRing(int capacity, Supplier<T> factory) {
+        int cap = Ring.roundUpPow2(capacity);
+        this.slots = new Object[cap];
+        this.seqs = new AtomicLongArray(cap);
+        this.mask = cap - 1;
+        for (int i = 0; i < cap; i++) {
+            slots[i] = factory.get();
+            seqs.set(i, i);
+        }
+    }
+
+    @Override
+    public long claim() {
+        while (true) {
+            long t = tail.get();
+            long s = seqs.get((int) t & mask);
+            if (s == t) {
+                if (tail.compareAndSet(t, t + 1)) return t;
+            } else if (s < t) {
+                return -1;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T slot(long seq) { return (T) slots[(int) seq & mask]; }
+
+    @Override
+    public void publish(long seq) { seqs.lazySet((int) seq & mask, seq + 1); }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public int drain(Consumer<? super T> c, int max) {
+        long h = head;
+        int n = 0;
+        while (n < max) {
+            int idx = (int) h & mask;
+            if (seqs.get(idx) != h + 1) break;
+            c.accept((T) slots[idx]);
+            seqs.lazySet(idx, h + slots.length);
+            h++;
+            n++;
+        }
+        if (n > 0) head = h;
+        return n;
+    }
+
+    @Override
+    public int size() { return (int) Math.max(0, tail.get() - head); }
+
+    @Override
+    public int capacity() { return slots.length; }
+}
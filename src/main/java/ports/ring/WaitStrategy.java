@@ -0,0 +1,44 @@
+package ports.ring;
+
+import java.util.concurrent.locks.LockSupport;
+
+/** What an idle ring consumer does between empty polls. */
+public enum WaitStrategy {
+
+    /** Lowest latency, burns a core. */
+    BUSY_SPIN {
+        @Override public void idle(int idleCount) { Thread.onSpinWait(); }
+    },
+    /** Spins briefly, then gives the core to other runnable threads. */
+    YIELD {
+        @Override public void idle(int idleCount) {
+            if (idleCount < SPIN_TRIES) Thread.onSpinWait(); else Thread.yield();
+        }
+    },
+    /** Spins briefly, then parks for a short, growing interval; near-zero CPU at idle. */
+    PARK {
+        @Override public void idle(int idleCount) {
+            if (idleCount < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                int shift = Math.min(idleCount - SPIN_TRIES, 6);
+                LockSupport.parkNanos(PARK_MIN_NS << shift);
+            }
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_MIN_NS = 10_000;
+
+    /** idleCount = consecutive empty polls so far; reset it after useful work. */
+    public abstract void idle(int idleCount);
+
+    public static WaitStrategy parse(String s) {
+        return switch (s.trim().toLowerCase().replace('_', '-')) {
+            case "busy-spin", "spin" -> BUSY_SPIN;
+            case "yield" -> YIELD;
+            case "park" -> PARK;
+            default -> throw new IllegalArgumentException("Unknown wait strategy: " + s + " (busy-spin|yield|park)");
+        };
+    }
+}
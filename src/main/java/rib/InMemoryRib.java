@@ -1,38 +1,44 @@
 package rib;
 
 import network.IpAddres;
-import rip.RouteChangeEvent;
-import routingTable.AdminDistance;
 import routingTable.Proto;
 import routingTable.RouteEntry;
 
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 
 public final class InMemoryRib implements Rib {
 
+    /** Prefix plus, for RIP, the neighbour it was learned from (0 otherwise). */
     private static final class Key implements Comparable<Key> {
         final IpAddres network;
         final int length;
+        final int from;
         Key(IpAddres anyAddressInPrefix, int length) {
+            this(anyAddressInPrefix, length, 0);
+        }
+        Key(IpAddres anyAddressInPrefix, int length, int from) {
             if (length < 0 || length > 32) throw new IllegalArgumentException("Bad prefix len");
             this.network = Objects.requireNonNull(anyAddressInPrefix).networkAddress(length);
             this.length = length;
+            this.from = from;
         }
         @Override public int compareTo(Key o) {
             int byLen = Integer.compare(o.length, this.length);
             if (byLen != 0) return byLen;
-            return Integer.compareUnsigned(this.network.toInt(), o.network.toInt());
+            int byNet = Integer.compareUnsigned(this.network.toInt(), o.network.toInt());
+            if (byNet != 0) return byNet;
+            return Integer.compareUnsigned(this.from, o.from);
         }
         @Override public boolean equals(Object o) {
             if (this == o) return true;
             if (!(o instanceof Key k)) return false;
-            return this.length == k.length && this.network.equals(k.network);
+            return this.length == k.length && this.from == k.from && this.network.equals(k.network);
         }
-        @Override public int hashCode() { return Objects.hash(network, length); }
+        @Override public int hashCode() { return Objects.hash(network, length, from); }
         @Override public String toString(){ return network.getIp() + "/" + length; }
     }
 
@@ -40,82 +46,79 @@ public final class InMemoryRib implements Rib {
     private final NavigableMap<Key, RouteEntry> statics   = new TreeMap<>();
     private final NavigableMap<Key, RouteEntry> rip       = new TreeMap<>();
 
-    private final List<RibListener> listeners = new CopyOnWriteArrayList<>();
+    private final RibChangeBus bus;
+    private final RibChangeLog log;
+    private volatile long version;   // written under the write lock
     private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
 
-
-    @Override
-    public void upsertConnected(IpAddres network, int length, String outIf) {
-        var re = RouteEntry.builder()
-                .network(network.networkAddress(length))
-                .length(length)
-                .outIf(outIf)
-                .nextHop(null)
-                .metric(0)
-                .ad(AdminDistance.CONNECTED)
-                .proto(Proto.CONNECTED)
-                .build();
-        put(connected, re);
+    public InMemoryRib() {
+        this(new RibChangeBus(), 4096);
     }
 
-    @Override
-    public void removeConnected(IpAddres network, int length) {
-        remove(connected, new Key(network, length));
+    public InMemoryRib(RibChangeBus bus, int changeLogSize) {
+        this.bus = Objects.requireNonNull(bus);
+        this.log = new RibChangeLog(changeLogSize);
     }
 
-    @Override
-    public void upsertStatic(IpAddres network, int length, String outIf, IpAddres nextHop) {
-        var re = RouteEntry.builder()
-                .network(network.networkAddress(length))
-                .length(length)
-                .outIf(outIf)
-                .nextHop(nextHop)
-                .metric(0)
-                .ad(AdminDistance.STATIC)
-                .proto(Proto.STATIC)
-                .build();
-        put(statics, re);
-    }
 
     @Override
-    public void removeStatic(IpAddres network, int length) {
-        remove(statics, new Key(network, length));
-    }
-
-    @Override
-    public void upsertRip(RouteEntry r) {
-        if (r.ad() != AdminDistance.RIP || r.proto() != Proto.RIP)
-            throw new IllegalArgumentException("RIP route must have AD=RIP and proto=RIP");
-        var norm = r.network().networkAddress(r.length());
-        var fixed = RouteEntry.builder()
-                .network(norm)
-                .length(r.length())
-                .outIf(r.outIf())
-                .nextHop(r.nextHop())
-                .metric(r.metric())
-                .ad(r.ad())
-                .proto(r.proto())
-                .learnedFrom(r.learnedFrom())
-                .build();
-        put(rip, fixed);
-    }
-
-    @Override
-    public void removeRip(IpAddres network, int length, IpAddres learnedFrom) {
+    public void batch(Consumer<RibTxn> body) {
+        RibTxn tx = new RibTxn();
+        body.accept(tx);
+        if (tx.size() == 0) return;
+        List<RibChangeBus.Change> changes = new ArrayList<>(tx.size());
         rw.writeLock().lock();
         try {
-            Key k = new Key(network, length);
-            RouteEntry curr = rip.get(k);
-            if (curr != null && (learnedFrom == null ||
-                    Objects.equals(curr.learnedFrom(), learnedFrom))) {
-                rip.remove(k);
-                fire(Collections.emptyList(), List.of(curr));
+            long next = version + 1;
+            for (RibTxn.Op op : tx.ops()) {
+                NavigableMap<Key, RouteEntry> table = tableFor(op.proto());
+                if (op.entry() != null) {
+                    RouteEntry prev = table.put(new Key(op.network(), op.length(), fromOf(op.proto(), op.learnedFrom())), op.entry());
+                    if (op.entry().sameAs(prev)) continue;   // periodic re-announcement
+                    changes.add(new RibChangeBus.Change(op.entry(), false));
+                    log.append(next, op.entry(), false);
+                    continue;
+                }
+                // a RIP removal without learnedFrom covers every neighbour's route
+                Collection<RouteEntry> gone = op.proto() == Proto.RIP && op.learnedFrom() == null
+                        ? ripRange(op.network(), op.length()).values()
+                        : optional(table, new Key(op.network(), op.length(), fromOf(op.proto(), op.learnedFrom())));
+                for (RouteEntry curr : List.copyOf(gone)) {
+                    table.remove(new Key(curr.network(), curr.length(), fromOf(curr.proto(), curr.learnedFrom())));
+                    changes.add(new RibChangeBus.Change(curr, true));
+                    log.append(next, curr, true);
+                }
             }
+            if (changes.isEmpty()) return;
+            version = next;
+            bus.publish(changes);
         } finally {
             rw.writeLock().unlock();
         }
     }
 
+    private static int fromOf(Proto proto, IpAddres learnedFrom) {
+        return proto == Proto.RIP && learnedFrom != null ? learnedFrom.toInt() : 0;
+    }
+
+    private static Collection<RouteEntry> optional(NavigableMap<Key, RouteEntry> table, Key k) {
+        RouteEntry e = table.get(k);
+        return e == null ? List.of() : List.of(e);
+    }
+
+    /** Every neighbour's RIP route for exactly network/length. */
+    private NavigableMap<Key, RouteEntry> ripRange(IpAddres network, int length) {
+        return rip.subMap(new Key(network, length, 0), true, new Key(network, length, -1), true);
+    }
+
+    private NavigableMap<Key, RouteEntry> tableFor(Proto proto) {
+        return switch (proto) {
+            case CONNECTED -> connected;
+            case STATIC -> statics;
+            case RIP -> rip;
+        };
+    }
+
 
     @Override
     public Optional<RouteEntry> lookup(IpAddres dst) {
@@ -141,6 +144,39 @@ public final class InMemoryRib implements Rib {
         }
     }
 
+    @Override
+    public Optional<RouteEntry> bestFor(IpAddres network, int length) {
+        return bestPathsFor(network, length).stream().findFirst();
+    }
+
+    @Override
+    public List<RouteEntry> bestPathsFor(IpAddres network, int length) {
+        Key k = new Key(network, length);
+        rw.readLock().lock();
+        try {
+            List<RouteEntry> candidates = new ArrayList<>(4);
+            if (connected.get(k) != null) candidates.add(connected.get(k));
+            if (statics.get(k) != null) candidates.add(statics.get(k));
+            candidates.addAll(ripRange(network, length).values());
+            RouteEntry best = null;
+            for (RouteEntry e : candidates) {
+                if (best == null || e.ad().value < best.ad().value
+                        || (e.ad().value == best.ad().value && e.metric() < best.metric())) {
+                    best = e;
+                }
+            }
+            if (best == null) return List.of();
+            if (best.proto() != Proto.RIP) return List.of(best);
+            int metric = best.metric();
+            return candidates.stream()
+                    .filter(e -> e.proto() == Proto.RIP && e.metric() == metric)
+                    .sorted(Comparator.comparingLong(e -> e.nextHop() == null ? 0 : e.nextHop().toInt() & 0xFFFFFFFFL))
+                    .toList();
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
     @Override
     public List<RouteEntry> snapshot() {
         rw.readLock().lock();
@@ -159,30 +195,23 @@ public final class InMemoryRib implements Rib {
         }
     }
 
-    @Override public void addListener(RibListener l){ listeners.add(l); }
-    @Override public void removeListener(RibListener l){ listeners.remove(l); }
-
+    @Override
+    public long version() { return version; }
 
-    private void put(NavigableMap<Key, RouteEntry> table, RouteEntry re){
-        rw.writeLock().lock();
+    @Override
+    public RibDelta changesSince(long since) {
+        rw.readLock().lock();
         try {
-            Key k = new Key(re.network(), re.length());
-            RouteEntry prev = table.put(k, re);
-            fire(List.of(re), prev == null ? List.of() : List.of());
+            if (since >= 0 && log.covers(since)) return log.since(since, version);
+            return new RibDelta(version, true, snapshot(), List.of());
         } finally {
-            rw.writeLock().unlock();
+            rw.readLock().unlock();
         }
     }
 
-    private void remove(NavigableMap<Key, RouteEntry> table, Key k){
-        rw.writeLock().lock();
-        try {
-            RouteEntry prev = table.remove(k);
-            if (prev != null) fire(List.of(), List.of(prev));
-        } finally {
-            rw.writeLock().unlock();
-        }
-    }
+    @Override public void addListener(RibListener l){ bus.subscribe(l); }
+    @Override public void removeListener(RibListener l){ bus.unsubscribe(l); }
+
 
     private static void collectMatches(NavigableMap<Key, RouteEntry> t, IpAddres ip, List<RouteEntry> out){
         for (var e : t.entrySet()){
@@ -190,12 +219,4 @@ public final class InMemoryRib implements Rib {
             if (ip.inSubnet(k.network, k.length)) out.add(e.getValue());
         }
     }
-
-    private void fire(List<RouteEntry> addedOrUpdated, List<RouteEntry> removed){
-        if (listeners.isEmpty()) return;
-        var evt = new RouteChangeEvent(addedOrUpdated, removed);
-        for (var l : listeners) {
-            try { l.onRouteChange(evt); } catch (Throwable ignored) {}
-        }
-    }
 }
@@ -5,20 +5,55 @@ import routingTable.RouteEntry;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface Rib {
-    void upsertConnected(IpAddres network, int length, String outIf);
-    void removeConnected(IpAddres network, int length);
+    default void upsertConnected(IpAddres network, int length, String outIf) {
+        batch(t -> t.upsertConnected(network, length, outIf));
+    }
+    default void removeConnected(IpAddres network, int length) {
+        batch(t -> t.removeConnected(network, length));
+    }
 
-    void upsertStatic(IpAddres network, int length, String outIf, IpAddres nextHop);
-    void removeStatic(IpAddres network, int length);
+    default void upsertStatic(IpAddres network, int length, String outIf, IpAddres nextHop) {
+        batch(t -> t.upsertStatic(network, length, outIf, nextHop));
+    }
+    default void removeStatic(IpAddres network, int length) {
+        batch(t -> t.removeStatic(network, length));
+    }
 
-    void upsertRip(RouteEntry ripRoute);
-    void removeRip(IpAddres network, int length, IpAddres learnedFrom);
+    default void upsertRip(RouteEntry ripRoute) {
+        batch(t -> t.upsertRip(ripRoute));
+    }
+    default void removeRip(IpAddres network, int length, IpAddres learnedFrom) {
+        batch(t -> t.removeRip(network, length, learnedFrom));
+    }
+
+    /**
+     * Collects changes in body, then applies them all under one write lock, so readers
+     * never see a half-applied set, and listeners get a single event for the lot.
+     * Upserts that repeat the stored route exactly are dropped without an event.
+     */
+    void batch(Consumer<RibTxn> body);
 
     Optional<RouteEntry> lookup(IpAddres dst);
+    /** Winner for exactly network/length (lowest AD, then metric), ignoring covering prefixes. */
+    Optional<RouteEntry> bestFor(IpAddres network, int length);
+    /**
+     * The equal-cost winners for exactly network/length (several only for RIP routes of
+     * the same metric from different neighbours), in a stable order; empty when none.
+     */
+    List<RouteEntry> bestPathsFor(IpAddres network, int length);
     List<RouteEntry> snapshot();
 
+    /** Bumped once per applied batch that changed anything. */
+    long version();
+    /**
+     * Changes after the given version; a full table when the change log no longer
+     * reaches back that far (or version is negative).
+     */
+    RibDelta changesSince(long version);
+
     void addListener(RibListener l);
     void removeListener(RibListener l);
 }
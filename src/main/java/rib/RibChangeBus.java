@@ -0,0 +1,114 @@
+package rib;
+
+import rip.RouteChangeEvent;
+import routingTable.RouteEntry;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers RIB changes to listeners off the RIB lock. {@link #publish} only merges the
+ * change into each subscriber's pending set; every subscriber has its own thread that
+ * wakes one window after the first pending change and gets a single merged
+ * {@link RouteChangeEvent}. Changes to the same route (see {@link RibView.Key}) within
+ * a window collapse to the last one.
+ *
+ * <p>A subscriber never has more than one event in flight. While it is busy, new changes
+ * keep merging into its pending set, so a slow listener sees larger merged batches
+ * rather than a growing queue, and its backlog is bounded by the number of routes.
+ */
+public final class RibChangeBus {
+
+    /** One route change, as published in the order the RIB applied it. */
+    public record Change(RouteEntry entry, boolean removed) {}
+
+    private final class Subscription {
+        final RibListener listener;
+        final ScheduledExecutorService exec;
+        private LinkedHashMap<RibView.Key, Change> pending = new LinkedHashMap<>();   // guarded by this
+        private boolean scheduled;                                             // guarded by this
+        final LongAdder delivered = new LongAdder();
+        final LongAdder merged = new LongAdder();
+
+        Subscription(RibListener listener) {
+            this.listener = listener;
+            String name = "rib-listener-" + listener.getClass().getSimpleName();
+            this.exec = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        synchronized void offer(List<Change> changes) {
+            for (Change c : changes) merge(c);
+            if (scheduled) return;
+            scheduled = true;
+            exec.schedule(this::deliver, windowMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void merge(Change c) {
+            if (pending.put(RibView.key(c.entry), c) != null) merged.increment();
+        }
+
+        private void deliver() {
+            LinkedHashMap<RibView.Key, Change> batch;
+            synchronized (this) {
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                scheduled = false;
+            }
+            if (batch.isEmpty()) return;
+            List<RouteEntry> added = new ArrayList<>(batch.size());
+            List<RouteEntry> removed = new ArrayList<>();
+            for (Change c : batch.values()) (c.removed ? removed : added).add(c.entry);
+            try {
+                listener.onRouteChange(new RouteChangeEvent(added, removed));
+            } catch (Throwable ignored) {}
+            delivered.increment();
+        }
+    }
+
+    private final long windowMs;
+    private final List<Subscription> subs = new CopyOnWriteArrayList<>();
+    private final LongAdder published = new LongAdder();
+
+    public RibChangeBus() { this(20); }
+
+    public RibChangeBus(long windowMs) {
+        if (windowMs < 0) throw new IllegalArgumentException("window >= 0");
+        this.windowMs = windowMs;
+    }
+
+    public void subscribe(RibListener l) {
+        subs.add(new Subscription(Objects.requireNonNull(l)));
+    }
+
+    public void unsubscribe(RibListener l) {
+        for (Subscription s : subs) {
+            if (s.listener == l && subs.remove(s)) s.exec.shutdown();
+        }
+    }
+
+    /**
+     * Called by the RIB, possibly under its write lock: merges only, never runs a listener.
+     * changes must be in the order they were applied, so the last change to a route wins.
+     */
+    public void publish(List<Change> changes) {
+        if (subs.isEmpty()) return;
+        published.add(changes.size());
+        for (Subscription s : subs) s.offer(changes);
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        m.put("published", published.sum());
+        for (Subscription s : subs) {
+            String n = s.listener.getClass().getSimpleName();
+            m.put(n + ".events", s.delivered.sum());
+            m.put(n + ".merged", s.merged.sum());
+        }
+        return m;
+    }
+}
@@ -0,0 +1,64 @@
+package rib;
+
+import routingTable.RouteEntry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded ring of the most recent RIB changes, each tagged with the version of the
+ * batch that made it. Not thread-safe: the owning RIB appends under its write lock
+ * and reads under its read lock.
+ */
+final class RibChangeLog {
+
+    private final long[] versions;
+    private final RouteEntry[] entries;
+    private final boolean[] removed;
+    private int head;    // next slot to write
+    private int count;
+    private long floor;  // highest version with evicted changes; deltas from below it are incomplete
+
+    RibChangeLog(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("change log capacity >= 1");
+        versions = new long[capacity];
+        entries = new RouteEntry[capacity];
+        removed = new boolean[capacity];
+    }
+
+    void append(long version, RouteEntry e, boolean isRemoval) {
+        if (count == entries.length) {
+            floor = Math.max(floor, versions[head]);
+        } else {
+            count++;
+        }
+        versions[head] = version;
+        entries[head] = e;
+        removed[head] = isRemoval;
+        head = (head + 1) % entries.length;
+    }
+
+    /** Whether every change after version is still in the log. */
+    boolean covers(long version) {
+        return version >= floor;
+    }
+
+    /** Changes after version, collapsed to the last one per route. Caller checks {@link #covers} first. */
+    RibDelta since(long version, long current) {
+        Map<RibView.Key, Integer> last = new LinkedHashMap<>();
+        int start = (head - count + entries.length) % entries.length;
+        for (int i = 0; i < count; i++) {
+            int slot = (start + i) % entries.length;
+            if (versions[slot] <= version) continue;
+            RibView.Key k = RibView.key(entries[slot]);
+            last.remove(k);
+            last.put(k, slot);
+        }
+        List<RouteEntry> up = new ArrayList<>();
+        List<RouteEntry> rm = new ArrayList<>();
+        for (int slot : last.values()) (removed[slot] ? rm : up).add(entries[slot]);
+        return new RibDelta(current, false, up, rm);
+    }
+}
@@ -0,0 +1,16 @@
+package rib;
+
+import routingTable.RouteEntry;
+
+import java.util.List;
+
+/**
+ * Result of {@link Rib#changesSince}: the routes upserted and removed after the given
+ * version, at most one per route (the last change wins), up to {@code version}. When
+ * the change log no longer reaches back far enough, {@code full} is set and
+ * {@code upserted} holds the whole table, which replaces whatever the caller had.
+ */
+public record RibDelta(long version, boolean full, List<RouteEntry> upserted, List<RouteEntry> removed) {
+
+    public boolean isEmpty() { return !full && upserted.isEmpty() && removed.isEmpty(); }
+}
@@ -0,0 +1,100 @@
+package rib;
+
+import network.IpAddres;
+import routingTable.AdminDistance;
+import routingTable.Proto;
+import routingTable.RouteEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of RIB changes collected by {@link Rib#batch}. Entries are built and checked
+ * here, outside the RIB lock; the RIB then applies all of them under one write lock
+ * and publishes one event. If the batch body throws, nothing is applied.
+ */
+public final class RibTxn {
+
+    /** An upsert when entry is set, else a removal of network/length for proto. */
+    record Op(RouteEntry entry, IpAddres network, int length, Proto proto, IpAddres learnedFrom) {}
+
+    private final List<Op> ops = new ArrayList<>();
+
+    RibTxn() {}
+
+    public RibTxn upsertConnected(IpAddres network, int length, String outIf) {
+        checkLength(length);
+        ops.add(upsert(RouteEntry.builder()
+                .network(network.networkAddress(length))
+                .length(length)
+                .outIf(outIf)
+                .nextHop(null)
+                .metric(0)
+                .ad(AdminDistance.CONNECTED)
+                .proto(Proto.CONNECTED)
+                .build()));
+        return this;
+    }
+
+    public RibTxn removeConnected(IpAddres network, int length) {
+        return remove(network, length, Proto.CONNECTED, null);
+    }
+
+    public RibTxn upsertStatic(IpAddres network, int length, String outIf, IpAddres nextHop) {
+        checkLength(length);
+        ops.add(upsert(RouteEntry.builder()
+                .network(network.networkAddress(length))
+                .length(length)
+                .outIf(outIf)
+                .nextHop(nextHop)
+                .metric(0)
+                .ad(AdminDistance.STATIC)
+                .proto(Proto.STATIC)
+                .build()));
+        return this;
+    }
+
+    public RibTxn removeStatic(IpAddres network, int length) {
+        return remove(network, length, Proto.STATIC, null);
+    }
+
+    public RibTxn upsertRip(RouteEntry r) {
+        if (r.ad() != AdminDistance.RIP || r.proto() != Proto.RIP)
+            throw new IllegalArgumentException("RIP route must have AD=RIP and proto=RIP");
+        checkLength(r.length());
+        ops.add(upsert(RouteEntry.builder()
+                .network(r.network().networkAddress(r.length()))
+                .length(r.length())
+                .outIf(r.outIf())
+                .nextHop(r.nextHop())
+                .metric(r.metric())
+                .ad(r.ad())
+                .proto(r.proto())
+                .learnedFrom(r.learnedFrom())
+                .build()));
+        return this;
+    }
+
+    /** Removes the RIP route for network/length; with learnedFrom set, only if it came from that neighbour. */
+    public RibTxn removeRip(IpAddres network, int length, IpAddres learnedFrom) {
+        return remove(network, length, Proto.RIP, learnedFrom);
+    }
+
+    public int size() { return ops.size(); }
+
+    List<Op> ops() { return ops; }
+
+    private RibTxn remove(IpAddres network, int length, Proto proto, IpAddres learnedFrom) {
+        checkLength(length);
+        ops.add(new Op(null, network.networkAddress(length), length, proto, learnedFrom));
+        return this;
+    }
+
+    private static Op upsert(RouteEntry e) {
+        return new Op(e, e.network(), e.length(), e.proto(), e.learnedFrom());
+    }
+
+    private static void checkLength(int length) {
+        if (length < 0 || length > 32) throw new IllegalArgumentException("Bad prefix len");
+    }
+}
@@ -0,0 +1,71 @@
+package rib;
+
+import network.IpAddres;
+import routingTable.Proto;
+import routingTable.RouteEntry;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A consumer-side copy of the RIB kept current through {@link Rib#changesSince}: each
+ * read first applies the deltas since the last one, and only falls back to a full
+ * snapshot when it has fallen behind the change log. Reads while nothing changed cost
+ * one version check and no copy.
+ */
+public final class RibView {
+
+    private final Rib rib;
+    private final Map<Key, RouteEntry> routes = new HashMap<>();
+    private List<RouteEntry> list = List.of();
+    private long version = -1;
+    private long fullSyncs, deltaSyncs;
+
+    public RibView(Rib rib) {
+        this.rib = Objects.requireNonNull(rib);
+    }
+
+    /** Every route of every protocol, unordered; the list is immutable. */
+    public synchronized List<RouteEntry> routes() {
+        sync();
+        return list;
+    }
+
+    /** learnedFrom picks the neighbour for RIP and is ignored otherwise. */
+    public synchronized RouteEntry get(Proto proto, IpAddres network, int length, IpAddres learnedFrom) {
+        sync();
+        return routes.get(key(proto, network.toInt(), length, learnedFrom));
+    }
+
+    public synchronized long fullSyncs() { return fullSyncs; }
+    public synchronized long deltaSyncs() { return deltaSyncs; }
+
+    private void sync() {
+        if (version >= 0 && rib.version() == version) return;
+        RibDelta d = rib.changesSince(version);
+        if (d.full()) {
+            routes.clear();
+            fullSyncs++;
+        } else {
+            deltaSyncs++;
+        }
+        for (RouteEntry e : d.removed()) routes.remove(key(e));
+        for (RouteEntry e : d.upserted()) routes.put(key(e), e);
+        list = List.copyOf(routes.values());
+        version = d.version();
+    }
+
+    /** Identity of a route in the RIB: prefix and protocol, plus the neighbour for RIP. */
+    public record Key(Proto proto, int network, int length, int learnedFrom) {}
+
+    public static Key key(RouteEntry e) {
+        return key(e.proto(), e.network().toInt(), e.length(), e.learnedFrom());
+    }
+
+    static Key key(Proto proto, int network, int length, IpAddres learnedFrom) {
+        int from = proto == Proto.RIP && learnedFrom != null ? learnedFrom.toInt() : 0;
+        return new Key(proto, network, length, from);
+    }
+}
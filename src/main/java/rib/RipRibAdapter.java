@@ -1,28 +1,35 @@
 package rib;
 
 import network.IpAddres;
-import rib.Rib;
 import rip.RipV2;
 import routingTable.Proto;
 import routingTable.RouteEntry;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public final class RipRibAdapter {
     private RipRibAdapter(){}
 
-    public static List<RipV2.RipRte> buildRtesForInterface(Rib rib, String outIfName, boolean poisonReverse) {
-
-        var snapshot = rib.snapshot();
-        List<RipV2.RipRte> out = new ArrayList<>(snapshot.size());
-
-        for (RouteEntry e : snapshot) {
-            if (e.proto() == Proto.STATIC) {
-                continue;
-            }
+    /** Reads the routes from a {@link RibView}, so an update never copies and sorts the RIB under its lock. */
+    public static List<RipV2.RipRte> buildRtesForInterface(RibView rib, String outIfName, boolean poisonReverse) {
+
+        // one advertisement per prefix: the winner (several RIP routes may share a prefix)
+        Map<Long, RouteEntry> winners = new LinkedHashMap<>();
+        for (RouteEntry e : rib.routes()) {
+            if (e.proto() == Proto.STATIC) continue;
+            long k = ((long) e.network().toInt() << 8) | e.length();
+            winners.merge(k, e, (a, b) -> {
+                if (a.ad().value != b.ad().value) return a.ad().value < b.ad().value ? a : b;
+                return b.metric() < a.metric() ? b : a;
+            });
+        }
+        List<RipV2.RipRte> out = new ArrayList<>(winners.size());
 
+        for (RouteEntry e : winners.values()) {
             boolean learnedOnThisIf = Objects.equals(e.outIf(), outIfName);
             int advMetric = e.metric();
             if (learnedOnThisIf) {
@@ -0,0 +1,334 @@
+package rib;
+
+import network.IpAddres;
+import routingTable.Proto;
+import routingTable.RouteEntry;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * RIB on a path-compressed binary (Patricia) trie keyed on {@link IpAddres#toInt()}.
+ * Every node keeps the connected/static/rip entry for its prefix plus the already
+ * chosen winner, so {@link #lookup} is at most 32 steps and allocates nothing.
+ * RIP keeps one route per neighbour; equal-metric ones form the node's ECMP group.
+ */
+public final class TrieRib implements Rib {
+
+    private static final class Node {
+        final int prefix;
+        final int length;
+        final int mask;
+        Node zero, one;
+
+        RouteEntry connected, statics;
+        RouteEntry[] rips = NO_ROUTES;   // one per learnedFrom, replaced on write
+        Optional<RouteEntry> best;       // null while the node carries no routes
+        List<RouteEntry> paths = List.of();
+
+        Node(int prefix, int length) {
+            this.mask = IpAddres.toPrefixMaskInt(length);
+            this.prefix = prefix & mask;
+            this.length = length;
+        }
+
+        boolean isEmpty() { return connected == null && statics == null && rips.length == 0; }
+
+        void recomputeBest() {
+            RouteEntry bestRip = null;
+            for (RouteEntry r : rips) bestRip = better(bestRip, r);
+            RouteEntry b = better(better(connected, statics), bestRip);
+            if (b == null) {
+                best = null;
+                paths = List.of();
+                return;
+            }
+            if (b == bestRip) {
+                List<RouteEntry> group = new ArrayList<>(rips.length);
+                for (RouteEntry r : rips) if (r.metric() == b.metric()) group.add(r);
+                group.sort(BY_NEXT_HOP);
+                paths = List.copyOf(group);
+            } else {
+                paths = List.of(b);
+            }
+            best = Optional.of(paths.get(0));
+        }
+
+        private static RouteEntry better(RouteEntry a, RouteEntry b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            if (a.ad().value != b.ad().value) return a.ad().value < b.ad().value ? a : b;
+            return b.metric() < a.metric() ? b : a;
+        }
+    }
+
+    private static final RouteEntry[] NO_ROUTES = new RouteEntry[0];
+    /** Stable member order, so a group keeps its hash layout across unrelated updates. */
+    private static final Comparator<RouteEntry> BY_NEXT_HOP =
+            Comparator.comparingLong(r -> r.nextHop() == null ? 0 : r.nextHop().toInt() & 0xFFFFFFFFL);
+
+    private final Node root = new Node(0, 0);
+    private int size = 0;
+
+    private final RibChangeBus bus;
+    private final RibChangeLog log;
+    private volatile long version;   // written under the write lock
+    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+
+    public TrieRib() {
+        this(new RibChangeBus(), 4096);
+    }
+
+    public TrieRib(RibChangeBus bus, int changeLogSize) {
+        this.bus = Objects.requireNonNull(bus);
+        this.log = new RibChangeLog(changeLogSize);
+    }
+
+
+    @Override
+    public void batch(Consumer<RibTxn> body) {
+        RibTxn tx = new RibTxn();
+        body.accept(tx);
+        if (tx.size() == 0) return;
+        List<RibChangeBus.Change> changes = new ArrayList<>(tx.size());
+        List<RouteEntry> removed = new ArrayList<>(4);
+        rw.writeLock().lock();
+        try {
+            long next = version + 1;
+            for (RibTxn.Op op : tx.ops()) {
+                if (op.entry() != null) {
+                    if (!put(op.entry())) continue;   // periodic re-announcement
+                    changes.add(new RibChangeBus.Change(op.entry(), false));
+                    log.append(next, op.entry(), false);
+                } else {
+                    removed.clear();
+                    remove(op.network().toInt(), op.length(), op.proto(), op.learnedFrom(), removed);
+                    for (RouteEntry gone : removed) {
+                        changes.add(new RibChangeBus.Change(gone, true));
+                        log.append(next, gone, true);
+                    }
+                }
+            }
+            if (changes.isEmpty()) return;
+            version = next;
+            bus.publish(changes);
+        } finally {
+            rw.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public Optional<RouteEntry> lookup(IpAddres dst) {
+        int addr = dst.toInt();
+        rw.readLock().lock();
+        try {
+            Optional<RouteEntry> best = Optional.empty();
+            Node n = root;
+            while (n != null) {
+                if ((addr & n.mask) != n.prefix) break;
+                if (n.best != null) best = n.best;
+                if (n.length == 32) break;
+                n = bitAt(addr, n.length) == 0 ? n.zero : n.one;
+            }
+            return best;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<RouteEntry> bestFor(IpAddres network, int length) {
+        if (length < 0 || length > 32) throw new IllegalArgumentException("Bad prefix len");
+        int prefix = network.toInt() & IpAddres.toPrefixMaskInt(length);
+        rw.readLock().lock();
+        try {
+            Node n = root;
+            while (n != null && n.length < length) {
+                if ((prefix & n.mask) != n.prefix) return Optional.empty();
+                n = bitAt(prefix, n.length) == 0 ? n.zero : n.one;
+            }
+            if (n == null || n.length != length || n.prefix != prefix || n.best == null) return Optional.empty();
+            return n.best;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<RouteEntry> bestPathsFor(IpAddres network, int length) {
+        if (length < 0 || length > 32) throw new IllegalArgumentException("Bad prefix len");
+        int prefix = network.toInt() & IpAddres.toPrefixMaskInt(length);
+        rw.readLock().lock();
+        try {
+            Node n = root;
+            while (n != null && n.length < length) {
+                if ((prefix & n.mask) != n.prefix) return List.of();
+                n = bitAt(prefix, n.length) == 0 ? n.zero : n.one;
+            }
+            if (n == null || n.length != length || n.prefix != prefix) return List.of();
+            return n.paths;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<RouteEntry> snapshot() {
+        rw.readLock().lock();
+        try {
+            ArrayList<RouteEntry> all = new ArrayList<>(size);
+            ArrayDeque<Node> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                Node n = stack.pop();
+                if (n.connected != null) all.add(n.connected);
+                if (n.statics != null) all.add(n.statics);
+                Collections.addAll(all, n.rips);
+                if (n.zero != null) stack.push(n.zero);
+                if (n.one != null) stack.push(n.one);
+            }
+            all.sort(Comparator
+                    .<RouteEntry>comparingInt(e -> -e.length())
+                    .thenComparing(e -> e.network())
+                    .thenComparingInt(e -> e.ad().value));
+            return all;
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long version() { return version; }
+
+    @Override
+    public RibDelta changesSince(long since) {
+        rw.readLock().lock();
+        try {
+            if (since >= 0 && log.covers(since)) return log.since(since, version);
+            return new RibDelta(version, true, snapshot(), List.of());
+        } finally {
+            rw.readLock().unlock();
+        }
+    }
+
+    @Override public void addListener(RibListener l){ bus.subscribe(l); }
+    @Override public void removeListener(RibListener l){ bus.unsubscribe(l); }
+
+
+    /** Caller holds the write lock; false when re only repeats the route already stored. */
+    private boolean put(RouteEntry re) {
+        Node n = insertNode(re.network().toInt(), re.length());
+        RouteEntry prev = switch (re.proto()) {
+            case CONNECTED -> { var p = n.connected; n.connected = re; yield p; }
+            case STATIC    -> { var p = n.statics;   n.statics = re;   yield p; }
+            case RIP       -> putRip(n, re);
+        };
+        if (prev == null) size++;
+        n.recomputeBest();
+        return !re.sameAs(prev);
+    }
+
+    /** Replaces the route from the same neighbour, or adds one; returns the replaced route. */
+    private static RouteEntry putRip(Node n, RouteEntry re) {
+        RouteEntry[] rips = n.rips;
+        for (int i = 0; i < rips.length; i++) {
+            if (Objects.equals(rips[i].learnedFrom(), re.learnedFrom())) {
+                RouteEntry prev = rips[i];
+                RouteEntry[] copy = rips.clone();
+                copy[i] = re;
+                n.rips = copy;
+                return prev;
+            }
+        }
+        RouteEntry[] grown = Arrays.copyOf(rips, rips.length + 1);
+        grown[rips.length] = re;
+        n.rips = grown;
+        return null;
+    }
+
+    /**
+     * Caller holds the write lock; adds what it removed to out. A RIP removal without
+     * learnedFrom drops the routes of every neighbour.
+     */
+    private void remove(int prefix, int length, Proto proto, IpAddres learnedFrom, List<RouteEntry> out) {
+        ArrayList<Node> path = new ArrayList<>(8);
+        Node n = root;
+        while (n != null && n.length < length) {
+            if ((prefix & n.mask) != n.prefix) return;
+            path.add(n);
+            n = bitAt(prefix, n.length) == 0 ? n.zero : n.one;
+        }
+        if (n == null || n.length != length || n.prefix != prefix) return;
+
+        int before = out.size();
+        switch (proto) {
+            case CONNECTED -> { if (n.connected != null) out.add(n.connected); n.connected = null; }
+            case STATIC    -> { if (n.statics != null) out.add(n.statics);     n.statics = null; }
+            default -> {
+                List<RouteEntry> keep = new ArrayList<>(n.rips.length);
+                for (RouteEntry r : n.rips) {
+                    if (learnedFrom == null || Objects.equals(r.learnedFrom(), learnedFrom)) out.add(r);
+                    else keep.add(r);
+                }
+                n.rips = keep.toArray(NO_ROUTES);
+            }
+        }
+        if (out.size() == before) return;
+        size -= out.size() - before;
+        n.recomputeBest();
+        prune(path, n);
+    }
+
+    /** Finds or creates the node for prefix/length, splitting compressed edges on the way. */
+    private Node insertNode(int prefix, int length) {
+        Node n = root;
+        while (true) {
+            if (n.length == length) return n;
+
+            int bit = bitAt(prefix, n.length);
+            Node child = bit == 0 ? n.zero : n.one;
+            if (child == null) {
+                Node leaf = new Node(prefix, length);
+                setChild(n, bit, leaf);
+                return leaf;
+            }
+
+            int common = Math.min(Math.min(child.length, length),
+                    Integer.numberOfLeadingZeros(child.prefix ^ prefix));
+            if (common == child.length) {
+                n = child;
+                continue;
+            }
+
+            Node mid = new Node(prefix, common);
+            setChild(mid, bitAt(child.prefix, common), child);
+            setChild(n, bit, mid);
+            if (common == length) return mid;
+
+            Node leaf = new Node(prefix, length);
+            setChild(mid, bitAt(prefix, common), leaf);
+            return leaf;
+        }
+    }
+
+    /** Drops route-less nodes with at most one child, walking back up the path; the root always stays. */
+    private static void prune(List<Node> path, Node n) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            if (!n.isEmpty() || (n.zero != null && n.one != null)) return;
+            Node parent = path.get(i);
+            Node only = n.zero != null ? n.zero : n.one;
+            if (parent.zero == n) parent.zero = only; else parent.one = only;
+            n = parent;
+        }
+    }
+
+    private static void setChild(Node parent, int bit, Node child) {
+        if (bit == 0) parent.zero = child; else parent.one = child;
+    }
+
+    private static int bitAt(int addr, int pos) {
+        return (addr >>> (31 - pos)) & 1;
+    }
+}
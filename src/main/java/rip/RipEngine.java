@@ -10,7 +10,10 @@ import routingTable.AdminDistance;
 import routingTable.Proto;
 import routingTable.RouteEntry;
 import rib.RibListener;
+import rib.RibView;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.*;
@@ -18,6 +21,7 @@ import java.util.concurrent.*;
 public class RipEngine implements RibListener {
 
     private final Rib rib;
+    private final RibView ribView;
     private final ScheduledExecutorService ses = Executors.newScheduledThreadPool(1);
     private final Map<String, RipInterface> ifaces = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Long> triggerCooldownMs = new ConcurrentHashMap<>();
@@ -30,6 +34,7 @@ public class RipEngine implements RibListener {
     public RipEngine(Rib rib,TxSender txSender) {
         ses.scheduleAtFixedRate(this::ageRipRoutes, 5,  5, TimeUnit.SECONDS);
         this.rib = Objects.requireNonNull(rib);
+        this.ribView = new RibView(rib);
         rib.addListener(this);
         this.txSender = txSender;
     }
@@ -38,7 +43,7 @@ public class RipEngine implements RibListener {
                                   MacAddress ifMac,
                                   IpAddres ifIp ){
 
-        RipInterface rif = new RipInterface(ifName, ifMac, ifIp,txSender, rib);
+        RipInterface rif = new RipInterface(ifName, ifMac, ifIp,txSender, ribView);
         ifaces.put(ifName, rif);
 
         try { rif.sendPeriodicUpdate(); } catch (Exception ignored) {}
@@ -100,39 +105,46 @@ public class RipEngine implements RibListener {
             }
             if (!msg.isResponse()) return;
 
-            for (RipParser.Rte rte : msg.getRtes()) {
-                IpAddres prefixNet = rte.getPrefixNetwork();
-                int      prefixLen = rte.getPrefixLen();
-                IpAddres nextHop   = rte.getNextHop();
-                int      metric    = rte.getMetric();
-
-                if (nextHop == null) nextHop = srcIp;
-
-                int newMetric = Math.min(16, metric + 1);
-
-                if (newMetric >= 16) {
-                    rib.removeRip(prefixNet, prefixLen, srcIp);
-                    RipRouteKey key = new RipRouteKey(prefixNet, prefixLen, srcIp);
-                    lastSeenMs.remove(key);
-                    continue;
+            // one RIB transaction and one change event per message; route timers move only
+            // once the batch has been applied
+            List<RipRouteKey> seen = new ArrayList<>();
+            List<RipRouteKey> gone = new ArrayList<>();
+            rib.batch(tx -> {
+                for (RipParser.Rte rte : msg.getRtes()) {
+                    IpAddres prefixNet = rte.getPrefixNetwork();
+                    int      prefixLen = rte.getPrefixLen();
+                    IpAddres nextHop   = rte.getNextHop();
+                    int      metric    = rte.getMetric();
+
+                    if (nextHop == null) nextHop = srcIp;
+
+                    int newMetric = Math.min(16, metric + 1);
+
+                    if (newMetric >= 16) {
+                        tx.removeRip(prefixNet, prefixLen, srcIp);
+                        gone.add(new RipRouteKey(prefixNet, prefixLen, srcIp));
+                        continue;
+                    }
+
+                    IpAddres normalized = prefixNet.networkAddress(prefixLen);
+                    tx.upsertRip(
+                            RouteEntry.builder()
+                                    .network(normalized)
+                                    .length(prefixLen)
+                                    .outIf(inIfName)
+                                    .nextHop(nextHop)
+                                    .metric(newMetric)
+                                    .ad(AdminDistance.RIP)
+                                    .proto(Proto.RIP)
+                                    .learnedFrom(srcIp)
+                                    .build()
+                    );
+                    seen.add(new RipRouteKey(normalized, prefixLen, srcIp));
                 }
-
-                IpAddres normalized = prefixNet.networkAddress(prefixLen);
-                rib.upsertRip(
-                        RouteEntry.builder()
-                                .network(normalized)
-                                .length(prefixLen)
-                                .outIf(inIfName)
-                                .nextHop(nextHop)
-                                .metric(newMetric)
-                                .ad(AdminDistance.RIP)
-                                .proto(Proto.RIP)
-                                .learnedFrom(srcIp)
-                                .build()
-                );
-                RipRouteKey key = new RipRouteKey(normalized, prefixLen, srcIp);
-                lastSeenMs.put(key, System.currentTimeMillis());
-            }
+            });
+            long now = System.currentTimeMillis();
+            for (RipRouteKey key : gone) lastSeenMs.remove(key);
+            for (RipRouteKey key : seen) lastSeenMs.put(key, now);
 
             triggerUpdate(inIfName);
 
@@ -183,31 +195,22 @@ public class RipEngine implements RibListener {
 
     private void poisonRoute(RipRouteKey key) {
         try {
-            var snapshot = rib.snapshot();
-            for (RouteEntry e : snapshot) {
-                if (e.proto() != Proto.RIP) continue;
-                if (!e.network().equals(key.network)) continue;
-                if (e.length() != key.prefixLen) continue;
-                if (!e.learnedFrom().equals(key.learnedFrom)) continue;
-
-                if (e.metric() >= 16) {
-                    return;
-                }
-
-                RouteEntry poisoned = RouteEntry.builder()
-                        .network(e.network())
-                        .length(e.length())
-                        .outIf(e.outIf())
-                        .nextHop(e.nextHop())
-                        .metric(16)
-                        .ad(e.ad())
-                        .proto(e.proto())
-                        .learnedFrom(e.learnedFrom())
-                        .build();
-
-                rib.upsertRip(poisoned);
-                return;
-            }
+            RouteEntry e = ribView.get(Proto.RIP, key.network, key.prefixLen, key.learnedFrom);
+            if (e == null) return;
+            if (e.metric() >= 16) return;
+
+            RouteEntry poisoned = RouteEntry.builder()
+                    .network(e.network())
+                    .length(e.length())
+                    .outIf(e.outIf())
+                    .nextHop(e.nextHop())
+                    .metric(16)
+                    .ad(e.ad())
+                    .proto(e.proto())
+                    .learnedFrom(e.learnedFrom())
+                    .build();
+
+            rib.upsertRip(poisoned);
         } catch (Exception ignored) { }
     }
 
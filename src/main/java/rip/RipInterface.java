@@ -5,7 +5,7 @@ import org.pcap4j.core.PcapHandle;
 import org.pcap4j.util.MacAddress;
 import ports.RipTx;
 import ports.TxSender;
-import rib.Rib;
+import rib.RibView;
 import rib.RipRibAdapter;
 
 import java.util.ArrayList;
@@ -19,14 +19,14 @@ public class RipInterface {
     private final String ifName;
     private final MacAddress ifMac;
     private final IpAddres ifIp;
-    private final Rib rib;
+    private final RibView rib;
     private final TxSender txSender;
 
     public RipInterface(String ifName,
                         MacAddress ifMac,
                         IpAddres ifIp,
                         TxSender txSender,
-                        Rib rib) {
+                        RibView rib) {
         this.ifName = ifName;
         this.ifMac = ifMac;
         this.ifIp = ifIp;
@@ -35,6 +35,13 @@ public final class RouteEntry {
     public Proto proto() { return proto; }
     public IpAddres learnedFrom() { return learnedFrom; }
 
+    /** Same prefix, next hop, metric and origin: re-announcing it changes nothing. */
+    public boolean sameAs(RouteEntry o) {
+        return o != null && length == o.length && metric == o.metric && ad == o.ad && proto == o.proto
+                && network.equals(o.network) && Objects.equals(outIf, o.outIf)
+                && Objects.equals(nextHop, o.nextHop) && Objects.equals(learnedFrom, o.learnedFrom);
+    }
+
     public static Builder builder() { return new Builder(); }
 
     public static final class Builder {
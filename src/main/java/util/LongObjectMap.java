@@ -0,0 +1,179 @@
+package util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Open-addressing map from primitive long to object. Reads are lock-free and do not
+ * allocate; writers synchronize on the map. A slot's key never changes once written
+ * into a table (removals leave a tombstone that only a rehash clears), so a reader
+ * can never pair a key with another key's value.
+ */
+public final class LongObjectMap<V> {
+
+    private static final Object TOMBSTONE = new Object();
+    private static final VarHandle VALS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] vals;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            vals = new Object[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private volatile Table table;
+    private volatile int size;
+    private int used;   // live + tombstones in the current table
+
+    public LongObjectMap() { this(16); }
+
+    public LongObjectMap(int expected) {
+        table = new Table(capacityFor(expected));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Table t = table;
+        for (int i = index(key, t.mask); ; i = (i + 1) & t.mask) {
+            Object v = VALS.getAcquire(t.vals, i);
+            if (v == null) return null;
+            if (v != TOMBSTONE && t.keys[i] == key) return (V) v;
+        }
+    }
+
+    public synchronized V put(long key, V value) {
+        if (value == null) throw new IllegalArgumentException("null value");
+        Table t = table;
+        int slot = find(t, key);
+        if (slot >= 0) {
+            V prev = valueAt(t, slot);
+            VALS.setRelease(t.vals, slot, value);
+            return prev;
+        }
+        insert(key, value);
+        return null;
+    }
+
+    public synchronized V computeIfAbsent(long key, LongFunction<? extends V> factory) {
+        Table t = table;
+        int slot = find(t, key);
+        if (slot >= 0) return valueAt(t, slot);
+        V v = factory.apply(key);
+        if (v != null) insert(key, v);
+        return v;
+    }
+
+    public synchronized V remove(long key) {
+        Table t = table;
+        int slot = find(t, key);
+        if (slot < 0) return null;
+        V prev = valueAt(t, slot);
+        VALS.setRelease(t.vals, slot, TOMBSTONE);
+        size--;
+        return prev;
+    }
+
+    /** Removes key only while it still maps to the given value. */
+    public synchronized boolean remove(long key, V expected) {
+        Table t = table;
+        int slot = find(t, key);
+        if (slot < 0 || valueAt(t, slot) != expected) return false;
+        VALS.setRelease(t.vals, slot, TOMBSTONE);
+        size--;
+        return true;
+    }
+
+    public synchronized void clear() {
+        table = new Table(16);
+        size = 0;
+        used = 0;
+    }
+
+    public int size() { return size; }
+
+    /** Point-in-time copy of the live values. */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        Table t = table;
+        List<V> out = new ArrayList<>(size);
+        for (int i = 0; i < t.vals.length; i++) {
+            Object v = VALS.getAcquire(t.vals, i);
+            if (v != null && v != TOMBSTONE) out.add((V) v);
+        }
+        return out;
+    }
+
+    @FunctionalInterface
+    public interface Visitor<V> {
+        void visit(long key, V value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        Table t = table;
+        for (int i = 0; i < t.vals.length; i++) {
+            Object v = VALS.getAcquire(t.vals, i);
+            if (v != null && v != TOMBSTONE) visitor.visit(t.keys[i], (V) v);
+        }
+    }
+
+
+    private void insert(long key, V value) {
+        if ((used + 1) * 2 > table.keys.length) rehash(capacityFor(size + 1));
+        Table t = table;
+        int i = index(key, t.mask);
+        while (t.vals[i] != null) i = (i + 1) & t.mask;
+        t.keys[i] = key;
+        VALS.setRelease(t.vals, i, value);
+        used++;
+        size++;
+    }
+
+    private void rehash(int capacity) {
+        Table old = table;
+        Table t = new Table(capacity);
+        int live = 0;
+        for (int j = 0; j < old.vals.length; j++) {
+            Object v = old.vals[j];
+            if (v == null || v == TOMBSTONE) continue;
+            int i = index(old.keys[j], t.mask);
+            while (t.vals[i] != null) i = (i + 1) & t.mask;
+            t.keys[i] = old.keys[j];
+            t.vals[i] = v;
+            live++;
+        }
+        used = live;
+        table = t;
+    }
+
+    private static int find(Table t, long key) {
+        for (int i = index(key, t.mask); ; i = (i + 1) & t.mask) {
+            Object v = t.vals[i];
+            if (v == null) return -1;
+            if (v != TOMBSTONE && t.keys[i] == key) return i;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V valueAt(Table t, int slot) { return (V) t.vals[slot]; }
+
+    private static int index(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /** Power of two with load factor <= 0.5 for live entries, leaving headroom for tombstones. */
+    private static int capacityFor(int expected) {
+        int cap = 16;
+        while (cap < expected * 4) cap <<= 1;
+        return cap;
+    }
+}
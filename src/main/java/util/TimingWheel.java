@@ -0,0 +1,200 @@
+package util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel: one thread advances a ring of buckets every tick and runs only the
+ * timeouts whose deadline falls in the current bucket. Scheduling and cancelling are O(1)
+ * and an idle wheel costs one wake-up per tick no matter how many timeouts are pending.
+ * Deadlines are rounded up to the tick, and tasks run on the wheel thread, so they must
+ * be short and must not block.
+ */
+public final class TimingWheel {
+
+    private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+
+    public interface Timeout {
+        /** Returns false if the task already ran or was already cancelled. */
+        boolean cancel();
+    }
+
+    private static final int IDLE = 0, PENDING = 1, CANCELLED = 2, EXPIRED = 3;
+
+    private static final VarHandle STATE;
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(Task.class, "state", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * A timeout that is its own wheel node. Long-lived owners (one per neighbour, say)
+     * extend it so arming a timer allocates nothing; a task may be scheduled again once
+     * it has run, but a cancelled task stays cancelled.
+     */
+    public abstract static class Task implements Timeout {
+        private long deadline;   // nanos since start
+        private long rounds;
+        private Task prev, next;
+        private Bucket bucket;
+        private TimingWheel owner;
+        private volatile int state = IDLE;
+
+        /** Runs on the wheel thread. */
+        protected abstract void expired();
+
+        @Override
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) return false;
+            owner.cancellations.add(this);
+            return true;
+        }
+    }
+
+    private static final class RunnableTask extends Task {
+        private final Runnable task;
+
+        RunnableTask(Runnable task) { this.task = task; }
+
+        @Override
+        protected void expired() { task.run(); }
+    }
+
+    private static final class Bucket {
+        Task head, tail;
+
+        void add(Task e) {
+            e.bucket = this;
+            if (head == null) {
+                head = tail = e;
+            } else {
+                tail.next = e;
+                e.prev = tail;
+                tail = e;
+            }
+        }
+
+        void remove(Task e) {
+            if (e.prev != null) e.prev.next = e.next; else head = e.next;
+            if (e.next != null) e.next.prev = e.prev; else tail = e.prev;
+            e.prev = e.next = null;
+            e.bucket = null;
+        }
+    }
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final Queue<Task> additions = new ConcurrentLinkedQueue<>();
+    private final Queue<Task> cancellations = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;   // worker thread only
+
+    public TimingWheel(String name, long tick, TimeUnit unit, int buckets) {
+        if (tick <= 0) throw new IllegalArgumentException("tick > 0");
+        if (buckets < 2 || Integer.bitCount(buckets) != 1) throw new IllegalArgumentException("buckets must be a power of two");
+        this.tickNanos = unit.toNanos(tick);
+        this.wheel = new Bucket[buckets];
+        for (int i = 0; i < buckets; i++) wheel[i] = new Bucket();
+        this.mask = buckets - 1;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return schedule(new RunnableTask(task), delay, unit);
+    }
+
+    /** Schedules a reusable task; fails if it is still pending or was cancelled. */
+    public Timeout schedule(Task task, long delay, TimeUnit unit) {
+        int s = task.state;
+        if ((s != IDLE && s != EXPIRED) || !STATE.compareAndSet(task, s, PENDING))
+            throw new IllegalStateException("task is pending or cancelled");
+        task.owner = this;
+        task.deadline = System.nanoTime() - startNanos + unit.toNanos(Math.max(0, delay));
+        pending.incrementAndGet();
+        additions.add(task);
+        return task;
+    }
+
+    public long tickMillis() { return TimeUnit.NANOSECONDS.toMillis(tickNanos); }
+
+    /** Timeouts scheduled and neither run nor cancelled yet. */
+    public int pending() { return pending.get(); }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (running) {
+            long sleep = (tick + 1) * tickNanos - (System.nanoTime() - startNanos);
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+                continue;
+            }
+            processCancellations();
+            transferAdditions();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void processCancellations() {
+        Task e;
+        while ((e = cancellations.poll()) != null) {
+            if (e.bucket != null) e.bucket.remove(e);
+            pending.decrementAndGet();
+        }
+    }
+
+    private void transferAdditions() {
+        // bounded per tick so a burst of scheduling cannot starve expiry
+        for (int i = 0; i < 100_000; i++) {
+            Task e = additions.poll();
+            if (e == null) return;
+            if (e.state == CANCELLED) continue;   // counted when its cancellation is processed
+            long due = e.deadline / tickNanos;
+            long at = Math.max(due, tick);
+            e.rounds = (at - tick) / wheel.length;
+            wheel[(int) (at & mask)].add(e);
+        }
+    }
+
+    private void expire(Bucket b) {
+        Task e = b.head;
+        while (e != null) {
+            Task next = e.next;
+            if (e.rounds <= 0) {
+                b.remove(e);
+                if (STATE.compareAndSet(e, PENDING, EXPIRED)) {
+                    pending.decrementAndGet();
+                    try {
+                        e.expired();
+                    } catch (Throwable t) {
+                        log.warn("timer task failed: {}", t.toString());
+                    }
+                }
+            } else {
+                e.rounds--;
+            }
+            e = next;
+        }
+    }
+}
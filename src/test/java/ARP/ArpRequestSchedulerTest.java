@@ -0,0 +1,107 @@
+package ARP;
+
+import network.IfIndex;
+import network.IpAddres;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.pcap4j.packet.EthernetPacket;
+import org.pcap4j.util.MacAddress;
+import ports.IfBindingManager;
+import ports.LinkStatusWatcher;
+import ports.TxSender;
+import util.TimingWheel;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArpRequestSchedulerTest {
+
+    static final IfAddressBook BOOK = new IfAddressBook() {
+        final IpAddres ip = new IpAddres("10.0.0.1");
+        final MacAddress mac = MacAddress.getByName("02:00:00:00:00:01");
+        public IpAddres getIp(String n) { return ip; }
+        public MacAddress getMac(String n) { return mac; }
+    };
+
+    private final TimingWheel wheel = new TimingWheel("test-arp", 100, TimeUnit.MILLISECONDS, 512);
+    private final AtomicInteger wire = new AtomicInteger();
+    private final TxSender tx = new TxSender(new IfBindingManager(new LinkStatusWatcher())) {
+        @Override
+        public void send(String ifName, EthernetPacket frame) { wire.incrementAndGet(); }
+    };
+
+    @AfterEach
+    void stop() {
+        wheel.stop();
+    }
+
+    @Test
+    void concurrentKicksForOneTargetShareAJobAndAFrame() throws Exception {
+        ArpRequestScheduler s = new ArpRequestScheduler(BOOK, tx, wheel, 100, 20);
+        IpAddres target = new IpAddres("10.0.0.2");
+        Set<CompletableFuture<MacAddress>> futures = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) pool.submit(() -> futures.add(s.kick("eth0", target)));
+        pool.shutdown();
+        assertThat(pool.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(futures).hasSize(1);
+        assertThat(wire.get()).isEqualTo(1);
+
+        MacAddress mac = MacAddress.getByName("02:00:00:00:00:02");
+        s.onLearned("eth0", target, mac);
+        assertThat(futures.iterator().next().get(1, TimeUnit.SECONDS)).isEqualTo(mac);
+        assertThat(s.stats()).containsEntry("pendingJobs", 0L);
+    }
+
+    @Test
+    void scanIsHeldToTheTokenBucketAndRetriesShareABatch() throws InterruptedException {
+        ArpRequestScheduler s = new ArpRequestScheduler(BOOK, tx, wheel, 100, 20);
+        int targets = 500;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < targets; i++) s.kick("eth1", IpAddres.fromInt(0x0B000000 + i));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+        Map<String, Long> st = s.stats();
+        assertThat(st.get("sent")).isBetween(20L, 20L + elapsedMs / 10 + 1);
+        assertThat(st.get("sent") + st.get("rateLimited")).isEqualTo(targets);
+        assertThat(st.get("pendingJobs")).isEqualTo(targets);
+        // first retries land in the few ticks the kicks spanned: one wheel task per tick, not per job
+        long ticks = elapsedMs / 100 + 2;
+        assertThat(st.get("coalesced")).isGreaterThanOrEqualTo(targets - ticks);
+
+        Thread.sleep(1_400);
+        st = s.stats();
+        assertThat(st.get("batchesFired")).isBetween(1L, ticks);
+        assertThat(wire.get()).isEqualTo(st.get("sent").intValue());
+    }
+
+    @Test
+    void limitIsPerInterface() {
+        ArpRequestScheduler s = new ArpRequestScheduler(BOOK, tx, wheel, 1, 5);
+        for (int i = 0; i < 10; i++) s.kick("eth1", IpAddres.fromInt(0x0B000000 + i));
+        for (int i = 0; i < 10; i++) s.kick("eth2", IpAddres.fromInt(0x0B000000 + i));
+        assertThat(s.stats()).containsEntry("sent", 10L).containsEntry("rateLimited", 10L);
+    }
+
+    @Test
+    void lookupsWithUnknownInterfaceNamesAssignNoIndex() {
+        ArpRequestScheduler s = new ArpRequestScheduler(BOOK, tx, wheel, 100, 20);
+        ArpCache cache = new ArpCache(wheel, 1000, 60_000);
+        IpAddres ip = new IpAddres("10.0.0.2");
+
+        s.onLearned("bogus-arp0", ip, MacAddress.getByName("02:00:00:00:00:02"));
+        assertThat(cache.get("bogus-arp0", ip)).isEmpty();
+        assertThat(cache.heldDown("bogus-arp0", ip.toInt())).isFalse();
+        cache.remove("bogus-arp0", ip);
+        assertThat(IfIndex.find("bogus-arp0")).isZero();
+
+        cache.learned("bogus-arp0", ip, MacAddress.getByName("02:00:00:00:00:02"));
+        assertThat(IfIndex.find("bogus-arp0")).isPositive();
+        assertThat(cache.get("bogus-arp0", ip)).isPresent();
+    }
+}
@@ -0,0 +1,84 @@
+package ARP;
+
+import fib.FibEntry;
+import fib.TrieFib;
+import network.IfIndex;
+import network.IpAddres;
+import org.junit.jupiter.api.Test;
+import org.pcap4j.util.MacAddress;
+import rip.RouteChangeEvent;
+import routingTable.AdminDistance;
+import routingTable.Proto;
+import routingTable.RouteEntry;
+
+import java.util.List;
+
+import static ARP.ArpRequestSchedulerTest.BOOK;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProxyArpDecisionsTest {
+
+    private static final int TARGET = 0x0A020304;   // 10.2.3.4
+
+    private final RouteEntry route = RouteEntry.builder().network(new IpAddres("10.2.0.0")).length(16)
+            .outIf("eth1").nextHop(new IpAddres("10.1.0.2")).metric(1)
+            .ad(AdminDistance.STATIC).proto(Proto.STATIC).build();
+    private final TrieFib fib = new TrieFib();
+    private final ProxyArpConfig cfg = new ProxyArpConfig();
+    private final ProxyArpDecisions decisions = new ProxyArpDecisions(cfg, BOOK, fib, 64);
+
+    ProxyArpDecisionsTest() {
+        cfg.addListener(decisions::invalidate);   // as Config wires it
+        fib.install(FibEntry.of(route));
+    }
+
+    @Test
+    void cachedDecisionIsDroppedOnRouteChange() {
+        assertThat(decisions.shouldProxyFor("eth0", TARGET)).isTrue();
+        assertThat(decisions.shouldProxyFor("eth0", TARGET)).isTrue();
+        assertThat(decisions.stats()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+
+        fib.withdraw(route.network().toInt(), route.length());
+        decisions.onRouteChange(new RouteChangeEvent(List.of(), List.of(route)));
+        assertThat(decisions.shouldProxyFor("eth0", TARGET)).isFalse();
+
+        fib.install(FibEntry.of(route));
+        decisions.onRouteChange(new RouteChangeEvent(List.of(route), List.of()));
+        assertThat(decisions.shouldProxyFor("eth0", TARGET)).isTrue();
+        assertThat(decisions.stats()).containsEntry("misses", 3L);
+    }
+
+    @Test
+    void cachedDecisionIsDroppedOnConfigChange() {
+        assertThat(decisions.shouldProxyFor("eth0", TARGET)).isTrue();
+
+        cfg.disableOn("eth0");
+        assertThat(decisions.shouldProxyFor("eth0", TARGET)).isFalse();
+
+        cfg.enableOn("eth0");
+        assertThat(decisions.shouldProxyFor("eth0", TARGET)).isTrue();
+
+        cfg.setEnabled(false);
+        assertThat(decisions.shouldProxyFor("eth0", TARGET)).isFalse();
+    }
+
+    @Test
+    void neverProxiesBackOutTheArrivalInterface() {
+        assertThat(decisions.shouldProxyFor("eth1", TARGET)).isFalse();
+        assertThat(decisions.shouldProxyFor("eth0", 0x0B000001)).isFalse();
+    }
+
+    @Test
+    void unknownInterfaceIsAnsweredWithoutBeingIndexed() {
+        IfAddressBook ownsNothing = new IfAddressBook() {
+            public IpAddres getIp(String n) { return null; }
+            public MacAddress getMac(String n) { return null; }
+        };
+        ProxyArpDecisions d = new ProxyArpDecisions(cfg, ownsNothing, fib, 64);
+
+        assertThat(d.shouldProxyFor("bogus-proxy0", TARGET)).isTrue();
+        assertThat(d.shouldProxyFor("bogus-proxy0", TARGET)).isTrue();
+        assertThat(d.stats()).containsEntry("hits", 0L).containsEntry("misses", 2L);
+        assertThat(IfIndex.find("bogus-proxy0")).isZero();
+    }
+}
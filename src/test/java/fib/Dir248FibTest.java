@@ -0,0 +1,150 @@
+package fib;
+
+import network.IpAddres;
+import org.junit.jupiter.api.Test;
+import routingTable.AdminDistance;
+import routingTable.Proto;
+import routingTable.RouteEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static fib.TrieFibTest.entry;
+import static fib.TrieFibTest.mask;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks Dir248Fib against TrieFib. Dir248Fib hands back the entry that owns a next-hop
+ * set, which may name another prefix, so lookups compare next hops rather than identity.
+ */
+class Dir248FibTest {
+
+    @Test
+    void matchesTrieFibAfterInstallAndWithdraw() {
+        Random r = new Random(7);
+        Dir248Fib dir = new Dir248Fib();
+        Fib trie = new TrieFib();
+        List<long[]> live = new ArrayList<>();
+
+        for (int i = 0; i < 30_000; i++) {
+            if (live.isEmpty() || r.nextInt(3) > 0) {
+                int len = r.nextInt(4) == 0 ? 25 + r.nextInt(8) : 8 + r.nextInt(17);
+                int p = (0x0A000000 | (r.nextInt() & 0x00FFFFFF)) & mask(len);
+                FibEntry e = entry(p, len, r.nextInt(20));
+                dir.install(e);
+                trie.install(e);
+                live.add(new long[]{p, len});
+            } else {
+                long[] k = live.remove(r.nextInt(live.size()));
+                dir.withdraw((int) k[0], (int) k[1]);
+                trie.withdraw((int) k[0], (int) k[1]);
+            }
+            if (i % 500 == 0) assertSameLookups(r, dir, trie, live);
+        }
+        assertSameLookups(r, dir, trie, live);
+        assertThat(dir.size()).isEqualTo(trie.size());
+        assertThat(dir.nextHops()).isLessThanOrEqualTo(20);
+    }
+
+    @Test
+    void rebuildsWhenBlocksRunOut() {
+        Dir248Fib fib = new Dir248Fib();
+        fib.install(entry(0x0A000000, 8, 1));
+        // each cycle retires a block; 40000 cycles pass the 32768 block limit
+        for (int i = 0; i < 40_000; i++) {
+            int p = 0x0A000000 | (i << 8);
+            fib.install(entry(p, 25, 2));
+            fib.withdraw(p, 25);
+        }
+        fib.install(entry(0x0A123480, 25, 3));
+
+        assertThat(fib.lookup(0x0A123481).nextHopInt()).isEqualTo(0xC0A80003);
+        assertThat(fib.lookup(0x0A123401).nextHopInt()).isEqualTo(0xC0A80001);
+        assertThat(fib.blocksInUse()).isEqualTo(1);
+        assertThat(fib.size()).isEqualTo(2);
+    }
+
+    @Test
+    void prefixesBeyondIndexSpaceShareNextHops() {
+        Dir248Fib fib = new Dir248Fib();
+        int n = 40_000;
+        for (int i = 0; i < n; i++) fib.install(entry(0x0A000000 | (i << 8), 24, i % 4));
+
+        assertThat(fib.size()).isEqualTo(n);
+        assertThat(fib.nextHops()).isEqualTo(4);
+        for (int i = 0; i < n; i += 997) {
+            assertThat(fib.lookup(0x0A000000 | (i << 8) | 5).nextHopInt()).isEqualTo(0xC0A80000 + i % 4);
+        }
+    }
+
+    @Test
+    void getReturnsTheExactPrefix() {
+        Dir248Fib fib = new Dir248Fib();
+        FibEntry a = entry(0x0A010000, 16, 1);
+        FibEntry b = entry(0x0B000000, 8, 1);
+        fib.install(a);
+        fib.install(b);
+
+        assertThat(fib.nextHops()).isEqualTo(1);
+        assertThat(fib.get(0x0A010000, 16)).isSameAs(a);
+        assertThat(fib.get(0x0B000000, 8)).isSameAs(b);
+        assertThat(fib.get(0x0A000000, 8)).isNull();
+
+        FibEntry a2 = FibEntry.of(RouteEntry.builder().network(IpAddres.fromInt(0x0A010000)).length(16)
+                .outIf(a.outIf()).nextHop(a.nextHop()).metric(7).ad(AdminDistance.RIP).proto(Proto.RIP).build());
+        fib.install(a2);
+        assertThat(fib.get(0x0A010000, 16)).isSameAs(a2);
+        assertThat(fib.lookup(0x0A010203).nextHopInt()).isEqualTo(a.nextHopInt());
+    }
+
+    @Test
+    void multipathPrefixesKeepTheirOwnEntryAndCounters() {
+        Dir248Fib fib = new Dir248Fib();
+        FibEntry a = ecmp(0x0A010000, 1, 2);
+        FibEntry b = ecmp(0x0A020000, 1, 2);
+        fib.install(a);
+        fib.install(b);
+
+        assertThat(fib.lookup(0x0A010001)).isSameAs(a);
+        assertThat(fib.lookup(0x0A020001)).isSameAs(b);
+        fib.lookup(0x0A010001).select(0).count();
+        assertThat(fib.get(0x0A010000, 16).paths().get(0).packets()).isEqualTo(1);
+        assertThat(fib.get(0x0A020000, 16).paths().get(0).packets()).isZero();
+
+        FibEntry a2 = FibEntry.of(List.of(rip(0x0A010000, 1), rip(0x0A010000, 3)), 4, a);
+        fib.install(a2);
+        assertThat(fib.lookup(0x0A010001)).isSameAs(a2);
+        assertThat(a2.paths().get(0).packets()).isEqualTo(1);
+    }
+
+    private static FibEntry ecmp(int prefix, int... hops) {
+        List<RouteEntry> group = new ArrayList<>();
+        for (int h : hops) group.add(rip(prefix, h));
+        return FibEntry.of(group, 4);
+    }
+
+    private static RouteEntry rip(int prefix, int hop) {
+        return RouteEntry.builder().network(IpAddres.fromInt(prefix)).length(16).outIf("eth" + hop)
+                .nextHop(IpAddres.fromInt(0xC0A80000 + hop)).metric(2).ad(AdminDistance.RIP).proto(Proto.RIP)
+                .learnedFrom(IpAddres.fromInt(0xC0A80000 + hop)).build();
+    }
+
+    private static void assertSameLookups(Random r, Fib dir, Fib trie, List<long[]> live) {
+        for (int j = 0; j < 2_000; j++) {
+            int dst = 0x0A000000 | (r.nextInt() & 0x00FFFFFF);
+            if (!live.isEmpty() && (j & 1) == 0) {
+                long[] k = live.get(r.nextInt(live.size()));
+                dst = (int) k[0] | (r.nextInt() & ~mask((int) k[1]));
+            }
+            FibEntry x = dir.lookup(dst), y = trie.lookup(dst);
+            if (y == null) {
+                assertThat(x).as("lookup %08x", dst).isNull();
+            } else {
+                assertThat(x).as("lookup %08x", dst).isNotNull();
+                assertThat(x.nextHopInt()).as("lookup %08x", dst).isEqualTo(y.nextHopInt());
+                assertThat(x.outIf()).isEqualTo(y.outIf());
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package fib;
+
+import network.IpAddres;
+import org.junit.jupiter.api.Test;
+import routingTable.AdminDistance;
+import routingTable.Proto;
+import routingTable.RouteEntry;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FibEntryTest {
+
+    static RouteEntry rip(String outIf, int hop) {
+        return RouteEntry.builder().network(new IpAddres("10.9.0.0")).length(16).outIf(outIf)
+                .nextHop(IpAddres.fromInt(0xC0A80000 + hop)).metric(2).ad(AdminDistance.RIP).proto(Proto.RIP)
+                .learnedFrom(IpAddres.fromInt(0xC0A80000 + hop)).build();
+    }
+
+    @Test
+    void remainingMembersKeepTheirCounters() {
+        FibEntry before = FibEntry.of(List.of(rip("eth0", 1), rip("eth1", 2), rip("eth2", 3)), 4);
+        for (FibEntry.Path p : before.paths()) {
+            int n = p.nextHopInt() & 0xFF;
+            for (int i = 0; i < n; i++) p.count();
+        }
+
+        FibEntry after = FibEntry.of(List.of(rip("eth1", 2), rip("eth3", 4), rip("eth0", 1)), 4, before);
+
+        assertThat(after.paths()).extracting(FibEntry.Path::packets).containsExactly(2L, 0L, 1L);
+        after.paths().get(0).count();
+        assertThat(before.paths().get(1).packets()).isEqualTo(3);
+    }
+
+    @Test
+    void groupIsCappedAtMaxPaths() {
+        FibEntry e = FibEntry.of(List.of(rip("eth0", 1), rip("eth1", 2), rip("eth2", 3)), 2);
+        assertThat(e.isMultipath()).isTrue();
+        assertThat(e.paths()).extracting(FibEntry.Path::outIf).containsExactly("eth0", "eth1");
+        assertThat(e.prefix()).isEqualTo(0x0A090000);
+    }
+
+    @Test
+    void selectIsStablePerHashAndSpreads() {
+        FibEntry e = FibEntry.of(List.of(rip("eth0", 1), rip("eth1", 2), rip("eth2", 3)), 4);
+        int[] hits = new int[3];
+        for (int h = -3_000; h < 3_000; h++) {
+            FibEntry.Path p = e.select(h);
+            assertThat(e.select(h)).isSameAs(p);
+            hits[e.paths().indexOf(p)]++;
+        }
+        assertThat(hits).containsOnly(2_000);
+    }
+}
@@ -0,0 +1,85 @@
+package fib;
+
+import network.IpAddres;
+import org.junit.jupiter.api.Test;
+import routingTable.AdminDistance;
+import routingTable.Proto;
+import routingTable.RouteEntry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Checks TrieFib lookups and exact gets against a linear longest-prefix match. */
+class TrieFibTest {
+
+    static FibEntry entry(int prefix, int length, int hop) {
+        return FibEntry.of(RouteEntry.builder().network(IpAddres.fromInt(prefix)).length(length)
+                .outIf("eth" + (hop % 3)).nextHop(IpAddres.fromInt(0xC0A80000 + hop))
+                .metric(1).ad(AdminDistance.STATIC).proto(Proto.STATIC).build());
+    }
+
+    static int mask(int length) {
+        return length == 0 ? 0 : (int) (0xFFFFFFFFL << (32 - length));
+    }
+
+    @Test
+    void matchesLinearLongestPrefixMatch() {
+        Random r = new Random(3);
+        Fib fib = new TrieFib();
+        Map<Long, FibEntry> live = new HashMap<>();
+        List<Long> keys = new ArrayList<>();
+
+        for (int i = 0; i < 5_000; i++) {
+            if (keys.isEmpty() || r.nextInt(3) > 0) {
+                int len = r.nextInt(33);
+                int p = (0x0A000000 | (r.nextInt() & 0x00FFFFFF)) & mask(len);
+                FibEntry e = entry(p, len, r.nextInt(20));
+                fib.install(e);
+                long k = ((long) p << 8) | len;
+                if (live.put(k, e) == null) keys.add(k);
+            } else {
+                long k = keys.remove(r.nextInt(keys.size()));
+                live.remove(k);
+                fib.withdraw((int) (k >>> 8), (int) (k & 0xFF));
+            }
+            assertThat(fib.size()).isEqualTo(live.size());
+
+            for (int j = 0; j < 10; j++) {
+                int dst = 0x0A000000 | (r.nextInt() & 0x00FFFFFF);
+                assertThat(fib.lookup(dst)).as("lookup %08x", dst).isSameAs(linear(live, dst));
+            }
+            if (!keys.isEmpty()) {
+                long k = keys.get(r.nextInt(keys.size()));
+                assertThat(fib.get((int) (k >>> 8), (int) (k & 0xFF))).isSameAs(live.get(k));
+            }
+        }
+    }
+
+    @Test
+    void getIsExact() {
+        Fib fib = new TrieFib();
+        FibEntry e = entry(0x0A010000, 16, 1);
+        fib.install(e);
+        assertThat(fib.get(0x0A010000, 16)).isSameAs(e);
+        assertThat(fib.get(0x0A010000, 24)).isNull();
+        assertThat(fib.get(0x0A000000, 8)).isNull();
+        assertThat(fib.lookup(0x0A0101FF)).isSameAs(e);
+        fib.withdraw(0x0A010000, 16);
+        assertThat(fib.lookup(0x0A0101FF)).isNull();
+    }
+
+    private static FibEntry linear(Map<Long, FibEntry> live, int dst) {
+        FibEntry best = null;
+        for (Map.Entry<Long, FibEntry> en : live.entrySet()) {
+            int len = (int) (en.getKey() & 0xFF);
+            int p = (int) (en.getKey() >>> 8);
+            if ((dst & mask(len)) == p && (best == null || len > best.length())) best = en.getValue();
+        }
+        return best;
+    }
+}
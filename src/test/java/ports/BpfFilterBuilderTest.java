@@ -0,0 +1,50 @@
+package ports;
+
+import network.IpAddres;
+import org.junit.jupiter.api.Test;
+import org.pcap4j.util.MacAddress;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BpfFilterBuilderTest {
+
+    private static final MacAddress MAC = MacAddress.getByName("02:00:00:00:00:01");
+    private static final IpAddres IP = new IpAddres("10.0.0.1");
+
+    private static final String UNICAST = "(ether dst 02:00:00:00:00:01 and (ip or arp))";
+    private static final String ALL_ARP = "(arp and ether broadcast)";
+    private static final String OWN_ARP = "(arp and ether broadcast and (arp[24:4] = 0x0a000001 or arp[14:4] = arp[24:4]))";
+    private static final String RIP = "(dst host 224.0.0.9 and udp port 520)";
+    private static final String DHCP = "(udp src port 68 and udp dst port 67)";
+
+    @Test
+    void minimalFilterKeepsOnlyUnicastAndOwnArp() {
+        assertThat(new BpfFilterBuilder(MAC).ip(IP).build()).isEqualTo(
+                "(ether dst 02:00:00:00:00:01 and (ip or arp)) or "
+                        + "(arp and ether broadcast and (arp[24:4] = 0x0a000001 or arp[14:4] = arp[24:4]))");
+    }
+
+    @Test
+    void everyFeatureCombination() {
+        for (int bits = 0; bits < 16; bits++) {
+            boolean rip = (bits & 1) != 0, dhcp = (bits & 2) != 0, proxyArp = (bits & 4) != 0, noIp = (bits & 8) != 0;
+            String built = new BpfFilterBuilder(MAC).ip(noIp ? null : IP)
+                    .rip(rip).dhcp(dhcp).proxyArp(proxyArp).build();
+
+            List<String> terms = new ArrayList<>(List.of(UNICAST, proxyArp || noIp ? ALL_ARP : OWN_ARP));
+            if (rip) terms.add(RIP);
+            if (dhcp) terms.add(DHCP);
+            assertThat(built).as("rip=%s dhcp=%s proxyArp=%s ip=%s", rip, dhcp, proxyArp, noIp ? null : IP)
+                    .isEqualTo(String.join(" or ", terms));
+        }
+    }
+
+    @Test
+    void targetAddressIsPrintedAsUnsignedHex() {
+        String f = new BpfFilterBuilder(MAC).ip(new IpAddres("192.168.1.254")).build();
+        assertThat(f).contains("arp[24:4] = 0xc0a801fe");
+    }
+}
@@ -0,0 +1,153 @@
+package ports;
+
+import ARP.*;
+import fib.FibEntry;
+import fib.TrieFib;
+import network.IpAddres;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.pcap4j.packet.EthernetPacket;
+import org.pcap4j.util.MacAddress;
+import ports.ring.FramePool;
+import ports.ring.WaitStrategy;
+import routingTable.AdminDistance;
+import routingTable.Proto;
+import routingTable.RouteEntry;
+import util.TimingWheel;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ForwarderTest {
+
+    private static final int IP = 14;
+    private static final int TTL = IP + 8;
+    private static final int CSUM = IP + 10;
+
+    private static final MacAddress OURS = MacAddress.getByName("02:00:00:00:00:01");
+    private static final MacAddress PEER = MacAddress.getByName("02:00:00:00:00:02");
+    private static final IpAddres GW = new IpAddres("10.1.0.2");
+    private static final IpAddres GW2 = new IpAddres("10.1.0.3");
+
+    private final TimingWheel wheel = new TimingWheel("test-timers", 100, TimeUnit.MILLISECONDS, 64);
+    private TxSender tx;
+
+    @AfterEach
+    void stop() {
+        wheel.stop();
+        if (tx != null) tx.onBindingChange("eth1", false);
+    }
+
+    @Test
+    void decrementTtlKeepsHeaderChecksumValid() {
+        Random r = new Random(4);
+        for (int i = 0; i < 200_000; i++) {
+            byte[] f = new byte[IP + 20];
+            r.nextBytes(f);
+            f[TTL] = (byte) (2 + r.nextInt(254));
+            int ttl = f[TTL] & 0xFF;
+            f[CSUM] = 0;
+            f[CSUM + 1] = 0;
+            int c = ~sum(f) & 0xFFFF;
+            f[CSUM] = (byte) (c >>> 8);
+            f[CSUM + 1] = (byte) c;
+
+            Forwarder.decrementTtl(f);
+
+            assertThat(f[TTL] & 0xFF).isEqualTo(ttl - 1);
+            assertThat(sum(f)).as("header sum after TTL %d", ttl).isEqualTo(0xFFFF);
+        }
+    }
+
+    @Test
+    void framesWithOptionsParkOnTheBoundedQueueUntilResolved() throws Exception {
+        ArpCache cache = new ArpCache(wheel, 1000, 60_000);
+        ArpRequestScheduler scheduler = new ArpRequestScheduler(BOOK, tx(), wheel, 100, 20);
+        UnresolvedQueues unresolved = new UnresolvedQueues(3, 16);
+        Forwarder fwd = forwarder(route(GW), cache, scheduler, unresolved);
+
+        for (int i = 0; i < 10; i++) fwd.onIpv4Frame(withOptions(i), "eth0");
+
+        assertThat(unresolved.stats())
+                .containsEntry("pendingNextHops", 1L)
+                .containsEntry("queued", 10L)
+                .containsEntry("droppedOverflow", 7L);
+
+        scheduler.onLearned("eth1", GW, PEER);
+        assertThat(unresolved.stats())
+                .containsEntry("pendingNextHops", 0L)
+                .containsEntry("drained", 3L);
+    }
+
+    @Test
+    void framesWithOptionsUseEcmpSelection() throws Exception {
+        FibEntry ecmp = FibEntry.of(List.of(route(GW).route(), route(GW2).route()), 4);
+        ArpCache cache = new ArpCache(wheel, 1000, 60_000);
+        Forwarder fwd = forwarder(ecmp, cache, new ArpRequestScheduler(BOOK, tx(), wheel, 100, 20),
+                new UnresolvedQueues(3, 16));
+
+        for (int i = 0; i < 200; i++) fwd.onIpv4Frame(withOptions(i), "eth0");
+
+        long a = ecmp.paths().get(0).packets(), b = ecmp.paths().get(1).packets();
+        assertThat(a + b).isEqualTo(200);
+        assertThat(a).isPositive();
+        assertThat(b).isPositive();
+    }
+
+    private static final IfAddressBook BOOK = new IfAddressBook() {
+        final IpAddres a0 = new IpAddres("10.0.0.1"), a1 = new IpAddres("10.1.0.1");
+        public IpAddres getIp(String n) { return n.equals("eth0") ? a0 : a1; }
+        public MacAddress getMac(String n) { return OURS; }
+    };
+
+    private TxSender tx() {
+        tx = new TxSender(new IfBindingManager(new LinkStatusWatcher()), 64, new FramePool(256, 2048), 32,
+                TxSender.OverflowPolicy.DROP, 0, WaitStrategy.PARK);
+        tx.onBindingChange("eth1", true);   // no pcap handle, so frames are dropped
+        return tx;
+    }
+
+    private Forwarder forwarder(FibEntry route, ArpCache cache, ArpRequestScheduler scheduler, UnresolvedQueues unresolved) {
+        TrieFib fib = new TrieFib();
+        fib.install(route);
+        ArpEngine arp = new ArpEngine(BOOK, cache, scheduler, tx,
+                new ProxyArpDecisions(new ProxyArpConfig(), BOOK, fib, 64));
+        AdjacencyTable adj = new AdjacencyTable(cache);
+        cache.addListener(adj);
+        return new Forwarder(fib, arp, tx, BOOK, adj, unresolved, new RouteCache(64));
+    }
+
+    private static FibEntry route(IpAddres gw) {
+        return FibEntry.of(RouteEntry.builder().network(new IpAddres("10.2.0.0")).length(16).outIf("eth1")
+                .nextHop(gw).metric(1).ad(AdminDistance.RIP).proto(Proto.RIP).learnedFrom(gw).build());
+    }
+
+    /** UDP to 10.2.3.4 with a 4-byte IP option (IHL 6), which the fast path declines. */
+    private static EthernetPacket withOptions(int srcPort) throws Exception {
+        byte[] f = new byte[IP + 24 + 8 + 4];
+        f[12] = 0x08;
+        f[IP] = 0x46;
+        f[IP + 3] = (byte) (24 + 12);
+        f[TTL] = 64;
+        f[IP + 9] = 17;
+        f[IP + 12] = 10; f[IP + 15] = 5;                                 // src 10.0.0.5
+        f[IP + 16] = 10; f[IP + 17] = 2; f[IP + 18] = 3; f[IP + 19] = 4;  // dst 10.2.3.4
+        f[IP + 20] = 1; f[IP + 21] = 1; f[IP + 22] = 1; f[IP + 23] = 1;  // NOP options
+        int udp = IP + 24;
+        f[udp] = (byte) (srcPort >>> 8); f[udp + 1] = (byte) srcPort;
+        f[udp + 3] = 53;
+        f[udp + 5] = 12;
+        return EthernetPacket.newPacket(f, 0, f.length);
+    }
+
+    /** One's complement sum over the 20-byte header, checksum field included. */
+    private static int sum(byte[] f) {
+        int s = 0;
+        for (int i = IP; i < IP + 20; i += 2) s += ((f[i] & 0xFF) << 8) | (f[i + 1] & 0xFF);
+        while ((s >>> 16) != 0) s = (s & 0xFFFF) + (s >>> 16);
+        return s;
+    }
+}
@@ -0,0 +1,101 @@
+package ports;
+
+import ARP.*;
+import fib.FibEntry;
+import fib.TrieFib;
+import network.IpAddres;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.pcap4j.util.MacAddress;
+import ports.ring.Frame;
+import ports.ring.FramePool;
+import ports.ring.WaitStrategy;
+import routingTable.AdminDistance;
+import routingTable.Proto;
+import routingTable.RouteEntry;
+import util.TimingWheel;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives pooled transit frames through DemuxPacketHandler -> Forwarder -> TxSender with a
+ * FIB route and a resolved adjacency, and measures what the forwarding thread and the TX
+ * drain thread allocate.
+ * Covers the pooled path (RX workers); inline capture wraps pcap4j's per-frame array.
+ */
+class ForwardingAllocationTest {
+
+    private static final int FRAMES = 200_000;
+
+    private final TimingWheel wheel = new TimingWheel("test-timers", 100, TimeUnit.MILLISECONDS, 64);
+    private TxSender tx;
+
+    @AfterEach
+    void stop() {
+        wheel.stop();
+        if (tx != null) tx.onBindingChange("eth1", false);
+    }
+
+    @Test
+    void steadyStateForwardingAllocatesNothing() {
+        var tmx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MacAddress ours = MacAddress.getByName("02:00:00:00:00:01");
+        MacAddress peer = MacAddress.getByName("02:00:00:00:00:02");
+        IpAddres gw = new IpAddres("10.1.0.2");
+        IfAddressBook book = new IfAddressBook() {
+            final IpAddres a0 = new IpAddres("10.0.0.1"), a1 = new IpAddres("10.1.0.1");
+            public IpAddres getIp(String n) { return n.equals("eth0") ? a0 : a1; }
+            public MacAddress getMac(String n) { return ours; }
+        };
+
+        FramePool pool = new FramePool(4096, 2048);
+        IfBindingManager ifbm = new IfBindingManager(new LinkStatusWatcher());
+        tx = new TxSender(ifbm, 1024, pool, 32, TxSender.OverflowPolicy.DROP, 0, WaitStrategy.PARK);
+        tx.onBindingChange("eth1", true);   // queue and drain thread; no pcap handle, so frames are dropped
+
+        TrieFib fib = new TrieFib();
+        fib.install(FibEntry.of(RouteEntry.builder().network(new IpAddres("10.2.0.0")).length(16).outIf("eth1")
+                .nextHop(gw).metric(1).ad(AdminDistance.STATIC).proto(Proto.STATIC).build()));
+        ArpCache cache = new ArpCache(wheel, 1000, 60_000);
+        ArpEngine arp = new ArpEngine(book, cache, new ArpRequestScheduler(book, tx, wheel, 100, 20), tx,
+                new ProxyArpDecisions(new ProxyArpConfig(), book, fib, 64));
+        AdjacencyTable adj = new AdjacencyTable(cache);
+        cache.addListener(adj);
+        cache.learned("eth1", gw, peer);
+        adj.install("eth1", gw.toInt(), ours, peer);
+
+        RouteCache routes = new RouteCache(64);
+        Forwarder fwd = new Forwarder(fib, arp, tx, book, adj, new UnresolvedQueues(3, 1024), routes);
+        DemuxPacketHandler demux = new DemuxPacketHandler(arp, null, fwd, null);
+
+        byte[] pkt = new byte[98];
+        pkt[12] = 0x08; pkt[14] = 0x45; pkt[17] = 84; pkt[23] = 1;                 // IPv4, ICMP, 84 bytes
+        pkt[30] = 10; pkt[31] = 2; pkt[32] = 3; pkt[33] = 4;                        // dst 10.2.3.4
+
+        long tid = Thread.currentThread().getId();
+        long txTid = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("tx-eth1")).findFirst().orElseThrow().getId();
+        double perFrame = 0, txPerFrame = 0;
+        for (int round = 0; round < 3; round++) {
+            long before = tmx.getThreadAllocatedBytes(tid);
+            long txBefore = tmx.getThreadAllocatedBytes(txTid);
+            for (int i = 0; i < FRAMES; i++) {
+                Frame f;
+                while ((f = pool.acquire()) == null) Thread.onSpinWait();
+                pkt[22] = 64;
+                f.set("eth0", pkt, pkt.length);
+                demux.onFrame(f);
+                f.release();
+            }
+            perFrame = (tmx.getThreadAllocatedBytes(tid) - before) / (double) FRAMES;
+            txPerFrame = (tmx.getThreadAllocatedBytes(txTid) - txBefore) / (double) FRAMES;
+        }
+
+        assertThat(routes.stats().get("hits")).as("frames that took the cached fast path").isGreaterThan(2L * FRAMES);
+        assertThat(perFrame).as("forwarding thread bytes per frame after warm-up").isLessThan(0.5);
+        assertThat(txPerFrame).as("TX drain thread bytes per frame after warm-up").isLessThan(0.5);
+    }
+}
@@ -0,0 +1,65 @@
+package ports;
+
+import org.junit.jupiter.api.Test;
+import org.pcap4j.packet.EthernetPacket;
+import ports.ring.Frame;
+import ports.ring.FramePool;
+import ports.ring.WaitStrategy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RxPipelineTest {
+
+    private static final byte[] FRAME = new byte[64];
+
+    @Test
+    void shutdownReturnsQueuedFramesToThePool() throws InterruptedException {
+        FramePool pool = new FramePool(256, 128);
+        RxPipeline rx = new RxPipeline(1, 128, pool, WaitStrategy.PARK);
+        CountDownLatch first = new CountDownLatch(1), go = new CountDownLatch(1);
+        AtomicInteger handled = new AtomicInteger();
+        rx.register("eth0", new CountingHandler(first, go, handled));
+
+        rx.submit("eth0", FRAME);
+        assertThat(first.await(5, TimeUnit.SECONDS)).isTrue();   // worker is now stuck in the handler
+        for (int i = 0; i < 100; i++) rx.submit("eth0", FRAME);
+
+        Thread stopper = new Thread(rx::shutdown);
+        stopper.start();
+        Thread.sleep(50);
+        go.countDown();
+        stopper.join(5_000);
+
+        assertThat(stopper.isAlive()).isFalse();
+        long dropped = rx.stats().get(0).get("dropped");
+        assertThat(dropped).as("frames discarded at shutdown").isPositive();
+        assertThat(handled.get() + dropped).isEqualTo(101);
+        assertThat(pool.stats().get("inUse")).isZero();
+
+        rx.submit("eth0", FRAME);
+        assertThat(pool.stats().get("inUse")).isZero();
+    }
+
+    /** Counts frames; the first one waits on go when it is set. */
+    private record CountingHandler(CountDownLatch first, CountDownLatch go, AtomicInteger handled)
+            implements PacketHandler {
+
+        @Override
+        public void onPacket(EthernetPacket frame, String ifName) { }
+
+        @Override
+        public void onFrame(Frame frame) {
+            handled.incrementAndGet();
+            first.countDown();
+            try {
+                if (go != null) go.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ports;
+
+import org.junit.jupiter.api.Test;
+import ports.ring.Frame;
+import ports.ring.FramePool;
+import ports.ring.WaitStrategy;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TxSenderTest {
+
+    private static final byte[] FRAME = new byte[64];
+
+    @Test
+    void unbindingWhileSendingLeaksNoPooledFrame() throws InterruptedException {
+        FramePool pool = new FramePool(512, 128);
+        TxSender tx = new TxSender(new IfBindingManager(new LinkStatusWatcher()), 256, pool, 32,
+                TxSender.OverflowPolicy.DROP, 0, WaitStrategy.PARK);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            while (!done.get()) {
+                Frame f = pool.acquire();
+                if (f == null) {
+                    Thread.yield();
+                    continue;
+                }
+                f.set("eth1", FRAME, FRAME.length);
+                try {
+                    tx.send("eth1", f);
+                } catch (Exception unbound) {
+                    // between unbind and rebind there is no queue
+                } finally {
+                    f.release();
+                }
+            }
+        });
+
+        tx.onBindingChange("eth1", true);
+        producer.start();
+        for (int i = 0; i < 50; i++) {
+            Thread.sleep(2);
+            tx.onBindingChange("eth1", false);
+            tx.onBindingChange("eth1", true);
+        }
+        done.set(true);
+        producer.join();
+        tx.onBindingChange("eth1", false);
+
+        assertThat(pool.stats().get("inUse")).isZero();
+    }
+}
@@ -0,0 +1,89 @@
+package ports.ring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RingTest {
+
+    /** Mutable slot, written in place like a frame. */
+    static final class Cell {
+        long value;
+    }
+
+    @Test
+    void wrapsAndRejectsWhenFull() {
+        Ring<Cell> ring = new MpscRing<>(4, Cell::new);
+        List<Long> out = new ArrayList<>();
+        long written = 0;
+
+        for (int lap = 0; lap < 5; lap++) {
+            for (int i = 0; i < ring.capacity(); i++) {
+                long seq = ring.claim();
+                assertThat(seq).isNotNegative();
+                ring.slot(seq).value = written++;
+                ring.publish(seq);
+            }
+            assertThat(ring.claim()).as("full ring").isEqualTo(-1);
+            assertThat(ring.size()).isEqualTo(ring.capacity());
+
+            assertThat(ring.drain(c -> out.add(c.value), 3)).isEqualTo(3);
+            assertThat(ring.size()).isEqualTo(1);
+            assertThat(ring.drain(c -> out.add(c.value), 16)).isEqualTo(1);
+            assertThat(ring.drain(c -> out.add(c.value), 16)).isZero();
+        }
+
+        assertThat(out).hasSize((int) written);
+        for (int i = 0; i < out.size(); i++) assertThat(out.get(i)).isEqualTo(i);
+    }
+
+    @Test
+    void capacityRoundsUpToPowerOfTwo() {
+        assertThat(new MpscRing<>(5, Cell::new).capacity()).isEqualTo(8);
+        assertThat(new MpscRing<>(8, Cell::new).capacity()).isEqualTo(8);
+        assertThat(Ring.roundUpPow2(1)).isEqualTo(2);
+    }
+
+    @Test
+    void mpscDeliversEveryProducersFramesInOrder() throws InterruptedException {
+        int producers = 4;
+        long perProducer = 50_000;
+        Ring<Cell> ring = new MpscRing<>(256, Cell::new);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long id = p;
+            Thread t = new Thread(() -> {
+                for (long i = 0; i < perProducer; ) {
+                    long seq = ring.claim();
+                    if (seq < 0) { Thread.yield(); continue; }
+                    ring.slot(seq).value = (id << 32) | i++;
+                    ring.publish(seq);
+                }
+            });
+            t.setDaemon(true);
+            threads.add(t);
+            t.start();
+        }
+
+        long[] next = new long[producers];
+        long[] received = {0};
+        while (received[0] < producers * perProducer) {
+            int n = ring.drain(c -> {
+                int id = (int) (c.value >>> 32);
+                if ((c.value & 0xFFFFFFFFL) != next[id]++) failed.set(true);
+            }, 64);
+            if (n == 0) Thread.yield();
+            received[0] += n;
+        }
+        for (Thread t : threads) t.join();
+
+        assertThat(failed).isFalse();
+        assertThat(next).containsOnly(perProducer);
+        assertThat(ring.size()).isZero();
+    }
+}
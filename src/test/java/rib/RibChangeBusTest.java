@@ -0,0 +1,83 @@
+package rib;
+
+import network.IpAddres;
+import org.junit.jupiter.api.Test;
+import rip.RouteChangeEvent;
+import routingTable.RouteEntry;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static rib.RibTxnTest.rip;
+
+class RibChangeBusTest {
+
+    @Test
+    void lastChangeToARouteWithinOnePublishWins() throws InterruptedException {
+        RibChangeBus bus = new RibChangeBus(5);
+        LinkedBlockingQueue<RouteChangeEvent> events = new LinkedBlockingQueue<>();
+        bus.subscribe(events::add);
+        RouteEntry x = rip(1), y = rip(2);
+
+        bus.publish(List.of(new RibChangeBus.Change(x, true), new RibChangeBus.Change(x, false),
+                new RibChangeBus.Change(y, false), new RibChangeBus.Change(y, true)));
+
+        RouteChangeEvent e = events.poll(5, TimeUnit.SECONDS);
+        assertThat(e).isNotNull();
+        assertThat(e.getAddedOrUpdated()).containsExactly(x);
+        assertThat(e.getRemoved()).containsExactly(y);
+    }
+
+    @Test
+    void removeThenUpsertThroughTheRibIsAnUpsert() throws InterruptedException {
+        for (Rib rib : new Rib[]{new TrieRib(new RibChangeBus(5), 64), new InMemoryRib(new RibChangeBus(5), 64)}) {
+            IpAddres net = new IpAddres("10.0.0.0");
+            rib.upsertStatic(net, 8, "eth0", null);
+            LinkedBlockingQueue<RouteChangeEvent> events = new LinkedBlockingQueue<>();
+            rib.addListener(events::add);
+
+            rib.batch(t -> t.removeStatic(net, 8).upsertStatic(net, 8, "eth1", null));
+
+            RouteChangeEvent e = events.poll(5, TimeUnit.SECONDS);
+            assertThat(e).isNotNull();
+            assertThat(e.getAddedOrUpdated()).extracting(RouteEntry::outIf).containsExactly("eth1");
+            assertThat(e.getRemoved()).isEmpty();
+        }
+    }
+
+    @Test
+    void slowListenerGetsOneMergedEventInsteadOfABacklog() throws InterruptedException {
+        RibChangeBus bus = new RibChangeBus(1);
+        CountDownLatch firstSeen = new CountDownLatch(1), go = new CountDownLatch(1);
+        LinkedBlockingQueue<RouteChangeEvent> events = new LinkedBlockingQueue<>();
+        RibListener slow = e -> {
+            events.add(e);
+            firstSeen.countDown();
+            try {
+                go.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        bus.subscribe(slow);
+
+        bus.publish(List.of(new RibChangeBus.Change(rip(0), false)));
+        assertThat(firstSeen.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 5; i++) bus.publish(List.of(new RibChangeBus.Change(rip(i), round % 2 == 1)));
+        }
+        go.countDown();
+
+        assertThat(events.poll(5, TimeUnit.SECONDS)).isNotNull();
+        RouteChangeEvent merged = events.poll(5, TimeUnit.SECONDS);
+        assertThat(merged).isNotNull();
+        assertThat(merged.getRemoved()).hasSize(5);
+        assertThat(merged.getAddedOrUpdated()).isEmpty();
+        assertThat(events.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(bus.stats()).containsEntry("published", 101L);
+        bus.unsubscribe(slow);
+    }
+}
@@ -0,0 +1,75 @@
+package rib;
+
+import network.IpAddres;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static rib.RibTxnTest.SAME_ROUTE;
+import static rib.RibTxnTest.rip;
+
+class RibChangeLogTest {
+
+    @Test
+    void deltaCollapsesToLastChangePerRoute() {
+        RibChangeLog log = new RibChangeLog(16);
+        log.append(1, rip(1), false);
+        log.append(2, rip(2), false);
+        log.append(3, rip(1), true);
+        log.append(4, rip(3), false);
+        log.append(4, rip(2), true);
+
+        RibDelta d = log.since(1, 4);
+        assertThat(d.full()).isFalse();
+        assertThat(d.version()).isEqualTo(4);
+        assertThat(d.upserted()).usingElementComparator(SAME_ROUTE).containsExactly(rip(3));
+        assertThat(d.removed()).usingElementComparator(SAME_ROUTE).containsExactly(rip(1), rip(2));
+
+        assertThat(log.since(4, 4).isEmpty()).isTrue();
+    }
+
+    @Test
+    void evictionRaisesTheFloor() {
+        RibChangeLog log = new RibChangeLog(4);
+        for (int v = 1; v <= 4; v++) log.append(v, rip(v), false);
+        assertThat(log.covers(0)).isTrue();
+
+        log.append(5, rip(5), false);    // evicts version 1
+        assertThat(log.covers(0)).isFalse();
+        assertThat(log.covers(1)).isTrue();
+        assertThat(log.since(1, 5).upserted()).usingElementComparator(SAME_ROUTE).containsExactly(rip(2), rip(3), rip(4), rip(5));
+    }
+
+    @Test
+    void changesSinceFallsBackToFullTableAcrossEviction() {
+        for (Rib rib : new Rib[]{new TrieRib(new RibChangeBus(0), 8), new InMemoryRib(new RibChangeBus(0), 8)}) {
+            rib.batch(t -> { for (int i = 0; i < 5; i++) t.upsertRip(rip(i)); });
+            long v1 = rib.version();
+            rib.removeRip(rip(0).network(), 24, null);
+
+            RibDelta d = rib.changesSince(v1);
+            assertThat(d.full()).isFalse();
+            assertThat(d.upserted()).isEmpty();
+            assertThat(d.removed()).usingElementComparator(SAME_ROUTE).containsExactly(rip(0));
+
+            // 8 more changes push everything after v1 out of an 8-entry log
+            rib.batch(t -> { for (int i = 10; i < 18; i++) t.upsertRip(rip(i)); });
+            RibDelta full = rib.changesSince(v1);
+            assertThat(full.full()).isTrue();
+            assertThat(full.version()).isEqualTo(rib.version());
+            assertThat(full.upserted()).usingElementComparator(SAME_ROUTE).containsExactlyInAnyOrderElementsOf(rib.snapshot());
+
+            assertThat(rib.changesSince(-1).full()).isTrue();
+            assertThat(rib.changesSince(rib.version()).isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    void removalOfUnknownRouteLogsNothing() {
+        Rib rib = new TrieRib(new RibChangeBus(0), 8);
+        rib.upsertRip(rip(1));
+        long v = rib.version();
+        rib.removeRip(IpAddres.fromInt(0x0B000000), 24, null);
+        assertThat(rib.version()).isEqualTo(v);
+        assertThat(rib.changesSince(v).isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,111 @@
+package rib;
+
+import network.IpAddres;
+import org.junit.jupiter.api.Test;
+import rip.RouteChangeEvent;
+import routingTable.AdminDistance;
+import routingTable.Proto;
+import routingTable.RouteEntry;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Batch semantics, run against both RIB implementations. */
+class RibTxnTest {
+
+    private static final IpAddres NEIGHBOUR = new IpAddres("192.168.0.2");
+
+    static RouteEntry rip(int i) {
+        return RouteEntry.builder().network(IpAddres.fromInt(0x0A000000 + (i << 8))).length(24)
+                .outIf("eth0").nextHop(NEIGHBOUR).metric(2).ad(AdminDistance.RIP).proto(Proto.RIP)
+                .learnedFrom(NEIGHBOUR).build();
+    }
+
+    /** RouteEntry has identity equality; the RIB stores its own copies. */
+    static final Comparator<RouteEntry> SAME_ROUTE = (a, b) -> a.sameAs(b) ? 0 : 1;
+
+    private static final List<BiFunction<RibChangeBus, Integer, Rib>> RIBS = List.of(TrieRib::new, InMemoryRib::new);
+
+    @Test
+    void batchIsAppliedAndPublishedOnce() throws InterruptedException {
+        for (var factory : RIBS) {
+            RibChangeBus bus = new RibChangeBus(10);
+            Rib rib = factory.apply(bus, 64);
+            LinkedBlockingQueue<RouteChangeEvent> events = new LinkedBlockingQueue<>();
+            RibListener listener = events::add;
+            rib.addListener(listener);
+
+            rib.batch(t -> {
+                for (int i = 0; i < 25; i++) t.upsertRip(rip(i));
+                t.upsertStatic(IpAddres.fromInt(0), 0, "eth1", null);
+            });
+
+            assertThat(rib.version()).isEqualTo(1);
+            assertThat(rib.snapshot()).hasSize(26);
+            RouteChangeEvent e = events.poll(5, TimeUnit.SECONDS);
+            assertThat(e).isNotNull();
+            assertThat(e.getAddedOrUpdated()).hasSize(26);
+            assertThat(events.poll(100, TimeUnit.MILLISECONDS)).isNull();
+            rib.removeListener(listener);
+        }
+    }
+
+    @Test
+    void throwingBodyAppliesNothing() {
+        for (var factory : RIBS) {
+            Rib rib = factory.apply(new RibChangeBus(0), 64);
+            rib.upsertRip(rip(0));
+            long v = rib.version();
+
+            assertThatThrownBy(() -> rib.batch(t -> {
+                t.removeRip(rip(0).network(), 24, null);
+                t.upsertRip(rip(1));
+                throw new IllegalStateException("abort");
+            })).isInstanceOf(IllegalStateException.class);
+
+            assertThat(rib.version()).isEqualTo(v);
+            assertThat(rib.snapshot()).hasSize(1);
+            assertThat(rib.lookup(IpAddres.fromInt(0x0A000005))).isPresent();
+        }
+    }
+
+    @Test
+    void invalidOpRejectsWholeBatch() {
+        for (var factory : RIBS) {
+            Rib rib = factory.apply(new RibChangeBus(0), 64);
+            rib.upsertRip(rip(0));
+            long v = rib.version();
+
+            assertThatThrownBy(() -> rib.batch(t -> {
+                t.removeRip(rip(0).network(), 24, null);
+                t.upsertStatic(IpAddres.fromInt(0), 40, "eth1", null);
+            })).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> rib.batch(t -> t.upsertRip(RouteEntry.builder()
+                    .network(IpAddres.fromInt(0)).length(0).outIf("eth0").metric(1)
+                    .ad(AdminDistance.STATIC).proto(Proto.RIP).build())))
+                    .isInstanceOf(IllegalArgumentException.class);
+
+            assertThat(rib.version()).isEqualTo(v);
+            assertThat(rib.snapshot()).hasSize(1);
+        }
+    }
+
+    @Test
+    void removeRipFromOtherNeighbourKeepsRoute() {
+        for (var factory : RIBS) {
+            Rib rib = factory.apply(new RibChangeBus(0), 64);
+            rib.batch(t -> t.upsertRip(rip(1)).upsertRip(rip(2)));
+            rib.batch(t -> t
+                    .removeRip(rip(1).network(), 24, IpAddres.fromInt(1))
+                    .removeRip(rip(2).network(), 24, null));
+
+            assertThat(rib.snapshot()).extracting(RouteEntry::network).containsExactly(rip(1).network());
+        }
+    }
+}
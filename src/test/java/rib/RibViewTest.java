@@ -0,0 +1,61 @@
+package rib;
+
+import network.IpAddres;
+import org.junit.jupiter.api.Test;
+import routingTable.AdminDistance;
+import routingTable.Proto;
+import routingTable.RouteEntry;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static rib.RibTxnTest.SAME_ROUTE;
+
+class RibViewTest {
+
+    @Test
+    void followsTheRibThroughDeltasAndFullSyncs() {
+        Random r = new Random(5);
+        for (Rib rib : new Rib[]{new TrieRib(new RibChangeBus(0), 32), new InMemoryRib(new RibChangeBus(0), 32)}) {
+            RibView view = new RibView(rib);
+            for (int i = 0; i < 2_000; i++) {
+                int burst = r.nextInt(10) == 0 ? 40 : 1 + r.nextInt(3);
+                rib.batch(t -> {
+                    for (int k = 0; k < burst; k++) randomOp(r, t);
+                });
+                if (r.nextInt(4) == 0) {
+                    assertThat(view.routes()).usingElementComparator(SAME_ROUTE).containsExactlyInAnyOrderElementsOf(rib.snapshot());
+                }
+            }
+            assertThat(view.routes()).usingElementComparator(SAME_ROUTE).containsExactlyInAnyOrderElementsOf(rib.snapshot());
+            assertThat(view.deltaSyncs()).isPositive();
+            assertThat(view.fullSyncs()).isGreaterThan(1);
+        }
+    }
+
+    @Test
+    void getFindsRipRouteByNeighbour() {
+        Rib rib = new TrieRib(new RibChangeBus(0), 32);
+        RibView view = new RibView(rib);
+        RouteEntry e = RibTxnTest.rip(3);
+        rib.upsertRip(e);
+        rib.upsertStatic(e.network(), 24, "eth1", null);
+
+        assertThat(view.get(Proto.RIP, e.network(), 24, e.learnedFrom())).usingComparator(SAME_ROUTE).isEqualTo(e);
+        assertThat(view.get(Proto.RIP, e.network(), 24, IpAddres.fromInt(1))).isNull();
+        assertThat(view.get(Proto.STATIC, e.network(), 24, null).outIf()).isEqualTo("eth1");
+        assertThat(view.routes()).hasSize(2);
+    }
+
+    private static void randomOp(Random r, RibTxn t) {
+        IpAddres net = IpAddres.fromInt(0x0A000000 | (r.nextInt(64) << 8));
+        IpAddres from = IpAddres.fromInt(0xC0A80000 + r.nextInt(3));
+        switch (r.nextInt(4)) {
+            case 0 -> t.upsertStatic(net, 24, "eth" + r.nextInt(2), null);
+            case 1 -> t.removeStatic(net, 24);
+            case 2 -> t.upsertRip(RouteEntry.builder().network(net).length(24).outIf("eth0").nextHop(from)
+                    .metric(1 + r.nextInt(15)).ad(AdminDistance.RIP).proto(Proto.RIP).learnedFrom(from).build());
+            default -> t.removeRip(net, 24, r.nextBoolean() ? from : null);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package rib;
+
+import network.IpAddres;
+import org.junit.jupiter.api.Test;
+import routingTable.AdminDistance;
+import routingTable.Proto;
+import routingTable.RouteEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the same random upserts and removes against TrieRib and InMemoryRib and checks
+ * that lookups, best paths and snapshots agree. Equal-metric RIP routes from different
+ * neighbours may tie-break differently, so lookups compare the winning prefix, AD and metric.
+ */
+class TrieRibTest {
+
+    private static final int ROUNDS = 50;
+    private static final int OPS = 300;
+
+    @Test
+    void matchesInMemoryRibOnRandomOps() {
+        Random r = new Random(1);
+        for (int round = 0; round < ROUNDS; round++) {
+            Rib ref = new InMemoryRib(new RibChangeBus(0), 64);
+            Rib trie = new TrieRib(new RibChangeBus(0), 64);
+            List<int[]> prefixes = new ArrayList<>();
+
+            for (int i = 0; i < OPS; i++) {
+                int len = r.nextInt(33);
+                int p = r.nextInt() & (r.nextBoolean() ? 0xFF000000 : 0xFFFFFFFF);
+                IpAddres net = IpAddres.fromInt(p);
+                switch (r.nextInt(6)) {
+                    case 0 -> { ref.upsertConnected(net, len, "e0"); trie.upsertConnected(net, len, "e0"); }
+                    case 1 -> { ref.upsertStatic(net, len, "e1", null); trie.upsertStatic(net, len, "e1", null); }
+                    case 2 -> {
+                        RouteEntry re = RouteEntry.builder().network(net).length(len).outIf("e2")
+                                .metric(1 + r.nextInt(15)).ad(AdminDistance.RIP).proto(Proto.RIP)
+                                .learnedFrom(IpAddres.fromInt(r.nextInt(3))).build();
+                        ref.upsertRip(re);
+                        trie.upsertRip(re);
+                    }
+                    default -> {
+                        if (prefixes.isEmpty()) break;
+                        int[] q = prefixes.get(r.nextInt(prefixes.size()));
+                        IpAddres n = IpAddres.fromInt(q[0]);
+                        switch (r.nextInt(3)) {
+                            case 0 -> { ref.removeConnected(n, q[1]); trie.removeConnected(n, q[1]); }
+                            case 1 -> { ref.removeStatic(n, q[1]); trie.removeStatic(n, q[1]); }
+                            default -> {
+                                IpAddres from = r.nextBoolean() ? null : IpAddres.fromInt(r.nextInt(3));
+                                ref.removeRip(n, q[1], from);
+                                trie.removeRip(n, q[1], from);
+                            }
+                        }
+                    }
+                }
+                prefixes.add(new int[]{p, len});
+
+                for (int k = 0; k < 20; k++) {
+                    int dst = r.nextBoolean() ? r.nextInt() : prefixes.get(r.nextInt(prefixes.size()))[0] ^ r.nextInt(256);
+                    IpAddres d = IpAddres.fromInt(dst);
+                    assertThat(summary(trie.lookup(d))).as("lookup %s", d).isEqualTo(summary(ref.lookup(d)));
+                }
+                int[] q = prefixes.get(r.nextInt(prefixes.size()));
+                IpAddres n = IpAddres.fromInt(q[0]);
+                assertThat(paths(trie.bestPathsFor(n, q[1]))).isEqualTo(paths(ref.bestPathsFor(n, q[1])));
+                assertThat(trie.snapshot()).hasSameSizeAs(ref.snapshot());
+            }
+        }
+    }
+
+    @Test
+    void noOpUpsertKeepsVersion() {
+        Rib rib = new TrieRib(new RibChangeBus(0), 64);
+        IpAddres net = new IpAddres("10.1.0.0");
+        rib.upsertStatic(net, 16, "eth0", null);
+        long v = rib.version();
+        rib.upsertStatic(net, 16, "eth0", null);
+        assertThat(rib.version()).isEqualTo(v);
+        rib.upsertStatic(net, 16, "eth1", null);
+        assertThat(rib.version()).isGreaterThan(v);
+    }
+
+    private static String summary(Optional<RouteEntry> e) {
+        return e.map(x -> x.network().getIp() + "/" + x.length() + " ad=" + x.ad() + " m=" + x.metric())
+                .orElse("none");
+    }
+
+    private static List<String> paths(List<RouteEntry> group) {
+        List<String> out = new ArrayList<>();
+        for (RouteEntry e : group) out.add(e.outIf() + " " + e.nextHop() + " " + e.metric() + " " + e.proto());
+        out.sort(null);
+        return out;
+    }
+}
@@ -0,0 +1,63 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Random operations against HashMap; the small key range keeps tombstones and rehashes frequent. */
+class LongObjectMapTest {
+
+    @Test
+    void matchesHashMapOnRandomOps() {
+        Random r = new Random(3);
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        Map<Long, Long> ref = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            long k = r.nextInt(5_000) * (r.nextBoolean() ? 1L : -7919L);
+            Long v = (long) i;
+            switch (r.nextInt(5)) {
+                case 0 -> assertThat(map.put(k, v)).isEqualTo(ref.put(k, v));
+                case 1 -> assertThat(map.remove(k)).isEqualTo(ref.remove(k));
+                case 2 -> assertThat(map.computeIfAbsent(k, x -> v)).isEqualTo(ref.computeIfAbsent(k, x -> v));
+                case 3 -> {
+                    Long cur = ref.get(k);
+                    Long expected = cur != null && r.nextBoolean() ? cur : Long.valueOf(-1L);
+                    assertThat(map.remove(k, expected)).isEqualTo(ref.remove(k, expected));
+                }
+                default -> assertThat(map.get(k)).isEqualTo(ref.get(k));
+            }
+            assertThat(map.size()).isEqualTo(ref.size());
+        }
+
+        assertThat(map.values()).containsExactlyInAnyOrderElementsOf(ref.values());
+        Map<Long, Long> seen = new HashMap<>();
+        map.forEach(seen::put);
+        assertThat(seen).isEqualTo(ref);
+    }
+
+    @Test
+    void removeWithValueMatchesByIdentity() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        String a = new String("a");
+        map.put(1L, a);
+        assertThat(map.remove(1L, new String("a"))).isFalse();
+        assertThat(map.remove(1L, a)).isTrue();
+        assertThat(map.get(1L)).isNull();
+    }
+
+    @Test
+    void clearEmptiesAndStaysUsable() {
+        LongObjectMap<Long> map = new LongObjectMap<>(4);
+        for (long k = 0; k < 1_000; k++) map.put(k, k);
+        map.clear();
+        assertThat(map.size()).isZero();
+        assertThat(map.get(10L)).isNull();
+        map.put(10L, 11L);
+        assertThat(map.get(10L)).isEqualTo(11L);
+    }
+}
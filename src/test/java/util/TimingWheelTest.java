@@ -0,0 +1,84 @@
+package util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Deadlines only get a lower bound; how late a task runs depends on the machine. */
+class TimingWheelTest {
+
+    // 8 buckets of 10 ms: anything past 80 ms needs at least one extra round
+    private final TimingWheel wheel = new TimingWheel("test-wheel", 10, TimeUnit.MILLISECONDS, 8);
+
+    @AfterEach
+    void stop() {
+        wheel.stop();
+    }
+
+    @Test
+    void delaysLongerThanOneRevolutionWaitForTheirRound() throws InterruptedException {
+        long[] delays = {0, 30, 79, 80, 81, 170, 350};
+        Map<Long, Long> firedAfter = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(delays.length);
+        long t0 = System.nanoTime();
+        for (long d : delays) {
+            wheel.schedule(() -> {
+                firedAfter.put(d, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+                done.countDown();
+            }, d, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        for (long d : delays) assertThat(firedAfter.get(d)).as("delay %d ms", d).isGreaterThanOrEqualTo(d);
+        assertThat(wheel.pending()).isZero();
+    }
+
+    @Test
+    void cancelledTimeoutNeverRuns() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        TimingWheel.Timeout t = wheel.schedule(fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertThat(t.cancel()).isTrue();
+        assertThat(t.cancel()).isFalse();
+        assertThat(fired.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(wheel.pending()).isZero();
+    }
+
+    @Test
+    void taskCanBeRescheduledAfterItRuns() throws InterruptedException {
+        Semaphore runs = new Semaphore(0);
+        TimingWheel.Task task = new TimingWheel.Task() {
+            @Override
+            protected void expired() { runs.release(); }
+        };
+
+        wheel.schedule(task, 20, TimeUnit.MILLISECONDS);
+        assertThatThrownBy(() -> wheel.schedule(task, 20, TimeUnit.MILLISECONDS))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(runs.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(task.cancel()).isFalse();
+
+        wheel.schedule(task, 20, TimeUnit.MILLISECONDS);
+        assertThat(runs.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void cancelledTaskStaysCancelled() {
+        TimingWheel.Task task = new TimingWheel.Task() {
+            @Override
+            protected void expired() { }
+        };
+        wheel.schedule(task, 1, TimeUnit.SECONDS);
+        assertThat(task.cancel()).isTrue();
+        assertThatThrownBy(() -> wheel.schedule(task, 1, TimeUnit.SECONDS))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}